@@ -0,0 +1,86 @@
+package main;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.NeighborhoodGenerator.NeighborhoodMethod;
+import util.ExpLookUpTable;
+import util.FastRandom;
+import util.Permutation;
+
+/**
+ * Benchmarks the acceptance probability lookup of IG
+ * ({@link ExpLookUpTable#getExp(int)}) against calculating it directly.
+ * 
+ * The differences in weighted tardiness that are looked up are those of
+ * random insert moves on a local optimum of the instance, so the lookups
+ * hit the table about as often as they do during a run.
+ * 
+ * @author Tom Jaspers
+ * 
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AcceptanceBenchmark {
+
+	private static final int NUMBER_OF_DIFFERENCES = 1 << 12;
+
+	@Param({ "50x20_1", "60x20_1", "70x20_1", "80x20_1", "90x20_1", "100x20_1" })
+	public String instanceName;
+
+	private int[] differences;
+	private int index;
+	private double temperature;
+	private ExpLookUpTable lookUpTable;
+
+	@Setup
+	public void setUp() throws Exception {
+		PFSPInstance instance = BenchmarkInstances.load(instanceName);
+		IISolver iiSolver = new IISolver(instance);
+		Solution localOptimum = iiSolver.runIterativeImprovement(
+				IISolver.Pivot.FIRST_IMPROVEMENT, NeighborhoodMethod.INSERT,
+				PFSPInstance.InitializationMethod.SLACK_HEURISTIC);
+
+		MoveEvaluator evaluator = new MoveEvaluator(instance);
+		evaluator.load(localOptimum.jobsOrder);
+		Permutation jobsOrder = evaluator.getJobsOrder();
+		NeighborhoodGenerator neighborhoodGenerator = new NeighborhoodGenerator(jobsOrder,
+				NeighborhoodMethod.INSERT, new FastRandom(BenchmarkInstances.SEED));
+		differences = new int[NUMBER_OF_DIFFERENCES];
+		for (int i = 0; i < differences.length; i++) {
+			neighborhoodGenerator.nextRandomMove();
+			neighborhoodGenerator.applyMove(jobsOrder);
+			differences[i] = evaluator.evaluate(neighborhoodGenerator.getLastIndexChanged())
+					- localOptimum.weightedTardiness;
+			neighborhoodGenerator.undoMove(jobsOrder);
+		}
+
+		temperature = instance.getTemperature(0.4);
+		lookUpTable = new ExpLookUpTable(temperature);
+	}
+
+	@Benchmark
+	public double getExp() {
+		return lookUpTable.getExp(differences[index++ & (NUMBER_OF_DIFFERENCES - 1)]);
+	}
+
+	@Benchmark
+	public double exp() {
+		return Math.exp(-differences[index++ & (NUMBER_OF_DIFFERENCES - 1)] / temperature);
+	}
+}
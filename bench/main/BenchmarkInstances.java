@@ -0,0 +1,36 @@
+package main;
+
+import util.FastRandom;
+import util.Permutation;
+
+/**
+ * Shared setup of the JMH benchmarks: loads the shipped instances and creates
+ * reproducible solutions for them.
+ * 
+ * The instances are read from the "instances/" folder (relative to the
+ * working directory), or from the folder given by the system property
+ * "instances.path".
+ * 
+ * @author Tom Jaspers
+ * 
+ */
+final class BenchmarkInstances {
+
+	/* Fixed seed, so every fork benchmarks the same solutions */
+	static final long SEED = 42L;
+
+	private BenchmarkInstances() {
+	}
+
+	static PFSPInstance load(String instanceName) throws Exception {
+		String path = System.getProperty("instances.path", "instances/");
+		return new PFSPInstance(path + instanceName);
+	}
+
+	/**
+	 * Returns a random (but reproducible) jobs order for the instance
+	 */
+	static Permutation randomJobsOrder(PFSPInstance instance) {
+		return instance.getRandomInitialSolution(new FastRandom(SEED));
+	}
+}
@@ -0,0 +1,109 @@
+package main;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.NeighborhoodGenerator.NeighborhoodMethod;
+import util.FastRandom;
+import util.Move;
+import util.Permutation;
+
+/**
+ * Benchmarks the evaluation of random moves on a local optimum of the
+ * neighborhood, recalculating the completion times up to the end
+ * ({@link MoveEvaluator#evaluate(int)}) against stopping once the rows
+ * converge ({@link MoveEvaluator#evaluate(int, int, int)}).
+ *
+ * At the end of a trial, the fraction of the rows that convergence saved is
+ * printed (i.e., the rows that were reused instead of recalculated).
+ *
+ * @author Tom Jaspers
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConvergenceBenchmark {
+
+	private static final int NUMBER_OF_MOVES = 1 << 12;
+
+	@Param({ "50x20_1", "60x20_1", "70x20_1", "80x20_1", "90x20_1", "100x20_1" })
+	public String instanceName;
+
+	@Param({ "TRANSPOSE", "EXCHANGE", "INSERT" })
+	public String neighborhoodMethod;
+
+	private MoveEvaluator evaluator;
+	private Permutation jobsOrder;
+	private Move[] moves;
+	private int index;
+
+	@Setup
+	public void setUp() throws Exception {
+		PFSPInstance instance = BenchmarkInstances.load(instanceName);
+		NeighborhoodMethod method = NeighborhoodMethod.valueOf(neighborhoodMethod);
+		IISolver iiSolver = new IISolver(instance);
+		Solution localOptimum = iiSolver.runIterativeImprovement(
+				IISolver.Pivot.FIRST_IMPROVEMENT, method,
+				PFSPInstance.InitializationMethod.SLACK_HEURISTIC);
+
+		evaluator = new MoveEvaluator(instance);
+		evaluator.load(localOptimum.jobsOrder);
+		jobsOrder = evaluator.getJobsOrder();
+		NeighborhoodGenerator neighborhoodGenerator = new NeighborhoodGenerator(jobsOrder,
+				method, new FastRandom(BenchmarkInstances.SEED));
+		moves = new Move[NUMBER_OF_MOVES];
+		for (int i = 0; i < moves.length; i++) {
+			neighborhoodGenerator.nextRandomMove();
+			Move move = neighborhoodGenerator.getLastMove();
+			moves[i] = new Move(move.getType());
+			moves[i].set(move.getType(), move.getI(), move.getJ());
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void printRowsSaved() {
+		long rowsConverged = evaluator.getRowsConverged();
+		if (rowsConverged > 0) {
+			System.out.println(String.format(Locale.ROOT, "%s %s: %.1f%% of the rows saved",
+					instanceName, neighborhoodMethod, 100.0 * rowsConverged
+							/ (evaluator.getRowsCalculated() + rowsConverged)));
+		}
+	}
+
+	@Benchmark
+	public int evaluate() {
+		Move move = moves[index++ & (NUMBER_OF_MOVES - 1)];
+		move.apply(jobsOrder);
+		int weightedTardiness = evaluator.evaluate(move.getLowestIndex());
+		move.undo(jobsOrder);
+		return weightedTardiness;
+	}
+
+	@Benchmark
+	public int evaluateConverging() {
+		Move move = moves[index++ & (NUMBER_OF_MOVES - 1)];
+		move.apply(jobsOrder);
+		int weightedTardiness = evaluator.evaluate(move.getLowestIndex(),
+				move.getHighestIndex(), Integer.MAX_VALUE);
+		move.undo(jobsOrder);
+		return weightedTardiness;
+	}
+}
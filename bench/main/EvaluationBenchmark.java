@@ -0,0 +1,67 @@
+package main;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import util.Permutation;
+
+/**
+ * Benchmarks the recalculation of the completion times from a given index
+ * onwards, both the allocating {@link PFSPInstance#reCalculateCompletionTimes}
+ * and the in-place {@link MoveEvaluator#evaluate(int)} used by the solvers.
+ * 
+ * @author Tom Jaspers
+ * 
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EvaluationBenchmark {
+
+	@Param({ "50x20_1", "60x20_1", "70x20_1", "80x20_1", "90x20_1", "100x20_1" })
+	public String instanceName;
+
+	/* The first recalculated index, as a percentage of the number of jobs */
+	@Param({ "0", "50", "90" })
+	public int startPercentage;
+
+	private PFSPInstance instance;
+	private Permutation jobsOrder;
+	private int[] completionTimes;
+	private MoveEvaluator evaluator;
+	private int startIndex;
+
+	@Setup
+	public void setUp() throws Exception {
+		instance = BenchmarkInstances.load(instanceName);
+		jobsOrder = BenchmarkInstances.randomJobsOrder(instance);
+		completionTimes = instance.calculateCompletionTimes(jobsOrder);
+		evaluator = new MoveEvaluator(instance);
+		evaluator.load(jobsOrder);
+		startIndex = jobsOrder.size() * startPercentage / 100;
+	}
+
+	@Benchmark
+	public int[] reCalculateCompletionTimes() {
+		return instance.reCalculateCompletionTimes(jobsOrder, completionTimes, startIndex);
+	}
+
+	@Benchmark
+	public int evaluate() {
+		return evaluator.evaluate(startIndex);
+	}
+}
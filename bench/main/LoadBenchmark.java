@@ -0,0 +1,106 @@
+package main;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import util.FastRandom;
+
+/**
+ * Benchmarks loading an instance from its text file and from its binary
+ * version. Besides the shipped instances, it loads synthetic instances of
+ * "synthetic_{jobs}x{machines}", which are generated in a temporary folder.
+ *
+ * @author Tom Jaspers
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LoadBenchmark {
+
+	@Param({ "50x20_1", "100x20_1", "synthetic_5000x100", "synthetic_20000x200" })
+	public String instanceName;
+
+	private Path directory;
+	private Path textFile;
+	private Path binaryFile;
+
+	@Setup
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("pfsp-load");
+		textFile = directory.resolve(instanceName);
+		if (instanceName.startsWith("synthetic_")) {
+			String[] size = instanceName.substring("synthetic_".length()).split("x");
+			writeSyntheticInstance(textFile, Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+		} else {
+			String path = System.getProperty("instances.path", "instances/");
+			Files.copy(Paths.get(path + instanceName), textFile);
+		}
+		binaryFile = PFSPInstance.getBinaryPath(textFile);
+		PFSPInstance instance = new PFSPInstance();
+		instance.readTextFile(textFile);
+		instance.writeBinaryFile(binaryFile);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		Files.delete(binaryFile);
+		Files.delete(textFile);
+		Files.delete(directory);
+	}
+
+	@Benchmark
+	public PFSPInstance readText() throws Exception {
+		PFSPInstance instance = new PFSPInstance();
+		instance.readTextFile(textFile);
+		return instance;
+	}
+
+	@Benchmark
+	public PFSPInstance readBinary() throws Exception {
+		PFSPInstance instance = new PFSPInstance();
+		instance.readBinaryFile(binaryFile);
+		return instance;
+	}
+
+	/**
+	 * Writes a random instance in the text format of the shipped instances
+	 */
+	private static void writeSyntheticInstance(Path file, int jobs, int machines)
+			throws Exception {
+		FastRandom rnd = new FastRandom(BenchmarkInstances.SEED);
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write(jobs + " " + machines + "\n");
+			for (int i = 0; i < jobs; i++) {
+				for (int j = 1; j <= machines; j++) {
+					writer.write(j + " " + (1 + rnd.nextInt(99)) + " ");
+				}
+				writer.write("\n");
+			}
+			writer.write("Reldue\n");
+			for (int i = 0; i < jobs; i++) {
+				writer.write("-1\t" + rnd.nextInt(100000) + "\t-1\t" + (1 + rnd.nextInt(10)) + "\n");
+			}
+		}
+	}
+}
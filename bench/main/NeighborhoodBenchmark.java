@@ -0,0 +1,126 @@
+package main;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.NeighborhoodGenerator.NeighborhoodMethod;
+import util.FastRandom;
+import util.Move;
+import util.Permutation;
+
+/**
+ * Benchmarks the generation of neighbors by the list permuters: the
+ * sequential {@link util.ListPermuter#getNext()}, and the uniformly random
+ * {@link util.ListPermuter#getUniformlyRandom()} (which materialize the
+ * neighbor), next to the in-place moves used by the solvers, and the sampling
+ * of a random move descriptor on its own.
+ * 
+ * @author Tom Jaspers
+ * 
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NeighborhoodBenchmark {
+
+	@State(Scope.Thread)
+	public static class SequentialState {
+		@Param({ "50x20_1", "60x20_1", "70x20_1", "80x20_1", "90x20_1", "100x20_1" })
+		public String instanceName;
+
+		@Param({ "TRANSPOSE", "EXCHANGE", "INSERT" })
+		public String neighborhoodMethod;
+
+		Permutation jobsOrder;
+		NeighborhoodGenerator neighborhoodGenerator;
+
+		@Setup
+		public void setUp() throws Exception {
+			PFSPInstance instance = BenchmarkInstances.load(instanceName);
+			jobsOrder = BenchmarkInstances.randomJobsOrder(instance);
+			neighborhoodGenerator = new NeighborhoodGenerator(jobsOrder,
+					NeighborhoodMethod.valueOf(neighborhoodMethod), new FastRandom(
+							BenchmarkInstances.SEED));
+		}
+	}
+
+	/*
+	 * MIX draws from all three neighborhoods, with equal weights
+	 */
+	@State(Scope.Thread)
+	public static class RandomState {
+		@Param({ "50x20_1", "60x20_1", "70x20_1", "80x20_1", "90x20_1", "100x20_1" })
+		public String instanceName;
+
+		@Param({ "TRANSPOSE", "EXCHANGE", "INSERT", "MIX" })
+		public String neighborhoodMethod;
+
+		Permutation jobsOrder;
+		NeighborhoodGenerator neighborhoodGenerator;
+
+		@Setup
+		public void setUp() throws Exception {
+			PFSPInstance instance = BenchmarkInstances.load(instanceName);
+			jobsOrder = BenchmarkInstances.randomJobsOrder(instance);
+			if (neighborhoodMethod.equals("MIX")) {
+				neighborhoodGenerator = new NeighborhoodGenerator(jobsOrder, new double[] { 1.0,
+						1.0, 1.0 }, new FastRandom(BenchmarkInstances.SEED));
+			} else {
+				neighborhoodGenerator = new NeighborhoodGenerator(jobsOrder,
+						NeighborhoodMethod.valueOf(neighborhoodMethod), new FastRandom(
+								BenchmarkInstances.SEED));
+			}
+		}
+	}
+
+	@Benchmark
+	public Permutation getNext(SequentialState state) {
+		if (!state.neighborhoodGenerator.hasNext()) {
+			state.neighborhoodGenerator.resetCounters();
+		}
+		return state.neighborhoodGenerator.getNext();
+	}
+
+	@Benchmark
+	public int nextMove(SequentialState state) {
+		if (!state.neighborhoodGenerator.nextMove()) {
+			state.neighborhoodGenerator.resetCounters();
+			state.neighborhoodGenerator.nextMove();
+		}
+		state.neighborhoodGenerator.applyMove(state.jobsOrder);
+		state.neighborhoodGenerator.undoMove(state.jobsOrder);
+		return state.neighborhoodGenerator.getLastIndexChanged();
+	}
+
+	@Benchmark
+	public Permutation getUniformlyRandom(RandomState state) {
+		return state.neighborhoodGenerator.getUniformlyRandom();
+	}
+
+	@Benchmark
+	public int nextRandomMove(RandomState state) {
+		state.neighborhoodGenerator.nextRandomMove();
+		state.neighborhoodGenerator.applyMove(state.jobsOrder);
+		state.neighborhoodGenerator.undoMove(state.jobsOrder);
+		return state.neighborhoodGenerator.getLastIndexChanged();
+	}
+
+	@Benchmark
+	public Move sampleMove(RandomState state) {
+		state.neighborhoodGenerator.nextRandomMove();
+		return state.neighborhoodGenerator.getLastMove();
+	}
+}
@@ -0,0 +1,68 @@
+package main;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.IISolver.Pivot;
+import main.NeighborhoodGenerator.NeighborhoodMethod;
+import main.PFSPInstance.InitializationMethod;
+
+/**
+ * Benchmarks the best-improvement iterative improvement from the slack
+ * heuristic solution to its local optimum, with the neighborhood scanned on
+ * 1 thread (sequentially) or split over the fork/join pool (see
+ * {@link IISolver#setParallelism(int)}). The local optimum is the same for
+ * every number of threads, so the times compare directly.
+ * 
+ * @author Tom Jaspers
+ * 
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ScanBenchmark {
+
+	@Param({ "50x20_1", "100x20_1" })
+	public String instanceName;
+
+	@Param({ "TRANSPOSE", "EXCHANGE", "INSERT" })
+	public String neighborhoodMethod;
+
+	@Param({ "1", "2", "4" })
+	public int threads;
+
+	private IISolver iiSolver;
+
+	@Setup
+	public void setUp() throws Exception {
+		iiSolver = new IISolver(BenchmarkInstances.load(instanceName));
+		iiSolver.setParallelism(threads);
+	}
+
+	@TearDown
+	public void tearDown() {
+		iiSolver.setParallelism(1);
+	}
+
+	@Benchmark
+	public Solution bestImprovement() {
+		return iiSolver.runIterativeImprovement(Pivot.BEST_IMPROVEMENT,
+				NeighborhoodMethod.valueOf(neighborhoodMethod),
+				InitializationMethod.SLACK_HEURISTIC);
+	}
+}
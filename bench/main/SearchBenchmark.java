@@ -0,0 +1,88 @@
+package main;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.NeighborhoodGenerator.NeighborhoodMethod;
+import util.Permutation;
+
+/**
+ * Benchmarks the larger building blocks of the solvers: the weighted
+ * tardiness of a complete solution, the optimal insertion of a job (the
+ * construction step of IG) and a complete first-improvement local search.
+ * 
+ * @author Tom Jaspers
+ * 
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchBenchmark {
+
+	@Param({ "50x20_1", "60x20_1", "70x20_1", "80x20_1", "90x20_1", "100x20_1" })
+	public String instanceName;
+
+	private Permutation jobsOrder;
+	private int[] completionTimes;
+	private PFSPInstance instance;
+	private IISolver iiSolver;
+
+	/* Holds the jobs order without its middle job, to insert that again */
+	private MoveEvaluator partialEvaluator;
+	private int removedJob;
+
+	@Setup
+	public void setUp() throws Exception {
+		instance = BenchmarkInstances.load(instanceName);
+		jobsOrder = BenchmarkInstances.randomJobsOrder(instance);
+		completionTimes = instance.calculateCompletionTimes(jobsOrder);
+		iiSolver = new IISolver(instance);
+
+		partialEvaluator = new MoveEvaluator(instance);
+		partialEvaluator.load(jobsOrder);
+		removedJob = partialEvaluator.remove(jobsOrder.size() / 2);
+	}
+
+	@Benchmark
+	public int calculateWeightedTardiness() {
+		return instance.calculateWeightedTardiness(completionTimes);
+	}
+
+	/**
+	 * Finds the best position for the removed job and inserts it there, as
+	 * IG does; the job is then removed again to restore the partial solution
+	 */
+	@Benchmark
+	public int insertJobOptimally() {
+		int bestPosition = partialEvaluator.findBestInsertion(removedJob);
+		partialEvaluator.insert(removedJob, bestPosition);
+		partialEvaluator.remove(bestPosition);
+		return bestPosition;
+	}
+
+	/**
+	 * Runs the first-improvement insert local search from the same random
+	 * solution until a local optimum
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public int runIterativeFirstImprovement() {
+		Solution solution = new Solution();
+		solution.jobsOrder = jobsOrder;
+		return iiSolver.runIterativeFirstImprovement(solution, NeighborhoodMethod.INSERT).weightedTardiness;
+	}
+}
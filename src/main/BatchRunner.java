@@ -0,0 +1,304 @@
+package main;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import util.FastRandom;
+
+/**
+ * Runs a manifest of runs in a single JVM, on a pool of worker threads, so a
+ * sweep of many short runs isn't dominated by the start-up of a JVM (and its
+ * JIT) per run. The instances are loaded once and shared by the runs.
+ *
+ * A manifest has one run per line, with the options of "-run" (see
+ * {@link RunConfiguration}), e.g. "-sls ig -instance 50x20_1 -ig_d 4 -seed 1
+ * -evaluations 100000". Empty lines and lines starting with # are ignored, and
+ * relative instance paths are relative to the directory of the manifest. A row
+ * without a seed gets one from the generator of the batch, so it is still
+ * reported (and reproducible with the seed of the batch).
+ *
+ * The result of every row is printed as soon as it finishes, as a CSV or JSON
+ * line, with its (1-based) row number; a row that fails is reported with its
+ * error instead of ending the batch.
+ *
+ * Before any row is run, the JVM is warmed up once on the instance of the
+ * first row (see {@link WarmupHarness}), so the rows that happen to be run
+ * first aren't timed on cold code.
+ *
+ * @author Tom Jaspers
+ *
+ */
+public class BatchRunner {
+
+	/**
+	 * Output format of the results
+	 */
+	public enum Format {
+		CSV, JSON
+	};
+
+	private static final String CSV_HEADER = "row,instance,sls,seed,weighted_tardiness,iterations,evaluations,runtime,error";
+
+	/**
+	 * A row of the manifest, and its result
+	 */
+	private static class Row {
+		final int number;
+		RunConfiguration configuration;
+		Solution solution;
+		String error;
+
+		Row(int number) {
+			this.number = number;
+		}
+	}
+
+	private final int threads;
+	private final Format format;
+	private final CalibrationCache calibrationCache;
+	private final PrintStream out;
+	private FastRandom rnd = new FastRandom();
+
+	/* Maximum run time of the warm-up (ms) */
+	private long warmupTime = 60000;
+
+	private final InstanceCache instances = new InstanceCache();
+
+	/* The solver of the current worker thread */
+	private final ThreadLocal<SLSSolver> solvers = new ThreadLocal<SLSSolver>() {
+		@Override
+		protected SLSSolver initialValue() {
+			SLSSolver solver = new SLSSolver();
+			solver.setCalibrationCache(calibrationCache);
+			return solver;
+		}
+	};
+
+	/**
+	 * @param threads
+	 *            the number of rows that are run in parallel
+	 * @param calibrationCache
+	 *            for the VND run times of rows without a budget
+	 * @param out
+	 *            where the results are printed
+	 */
+	public BatchRunner(int threads, Format format, CalibrationCache calibrationCache,
+			PrintStream out) {
+		this.threads = threads;
+		this.format = format;
+		this.calibrationCache = calibrationCache;
+		this.out = out;
+	}
+
+	/**
+	 * Seeds the generator of the seeds of rows without one
+	 */
+	public void setSeed(long seed) {
+		this.rnd = new FastRandom(seed);
+	}
+
+	/**
+	 * Sets the maximum run time of the warm-up in milliseconds (see
+	 * {@link WarmupHarness}), 0 to skip it
+	 */
+	public void setWarmupTime(long warmupTime) {
+		if (warmupTime < 0) {
+			throw new RuntimeException("Invalid warm-up time: " + warmupTime);
+		}
+		this.warmupTime = warmupTime;
+	}
+
+	/**
+	 * Runs all rows of a manifest, and returns the number of rows that failed
+	 */
+	public int run(Path manifest) throws IOException {
+		Path directory = manifest.toAbsolutePath().getParent();
+		Options options = Flowshop.createOptions();
+		List<Row> rows = new ArrayList<Row>();
+		int lineNumber = 0;
+		for (String text : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+			lineNumber++;
+			text = text.trim();
+			if (text.isEmpty() || text.startsWith("#")) {
+				continue;
+			}
+			Row row = new Row(lineNumber);
+			try {
+				row.configuration = RunConfiguration.parse(new BasicParser().parse(options,
+						text.split("\\s+")));
+				row.configuration.instancePath = directory.resolve(
+						row.configuration.instancePath).toString();
+			} catch (ParseException e) {
+				row.error = e.getMessage();
+			}
+			/* Seeds are assigned in the order of the manifest */
+			if (row.configuration != null && !row.configuration.hasSeed) {
+				row.configuration.hasSeed = true;
+				row.configuration.seed = rnd.nextLong();
+			}
+			rows.add(row);
+		}
+
+		warmUp(rows);
+		if (format == Format.CSV) {
+			out.println(CSV_HEADER);
+		}
+		int failures = 0;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			CompletionService<Row> completionService = new ExecutorCompletionService<Row>(executor);
+			for (final Row row : rows) {
+				completionService.submit(new Callable<Row>() {
+					@Override
+					public Row call() {
+						if (row.error == null) {
+							run(row);
+						}
+						return row;
+					}
+				});
+			}
+			for (int i = 0; i < rows.size(); i++) {
+				Row row = completionService.take().get();
+				if (row.error != null) {
+					failures++;
+				}
+				out.println(format(row));
+				out.flush();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while running the batch", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Batch row failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		return failures;
+	}
+
+	/**
+	 * Warms up the JVM on the instance of the first row that parsed. The
+	 * statistics go to stderr, as the results are printed to the output.
+	 */
+	private void warmUp(List<Row> rows) {
+		if (warmupTime == 0) {
+			return;
+		}
+		for (Row row : rows) {
+			if (row.error == null) {
+				PFSPInstance instance;
+				try {
+					instance = instances.get(Paths.get(row.configuration.instancePath));
+				} catch (Exception e) {
+					// The row reports the error when it is run
+					continue;
+				}
+				WarmupHarness warmupHarness = new WarmupHarness(instance);
+				warmupHarness.setMaximumTime(warmupTime);
+				System.err.println("Warmed up the JVM: " + warmupHarness.run());
+				return;
+			}
+		}
+	}
+
+	private void run(Row row) {
+		try {
+			SLSSolver solver = solvers.get();
+			solver.setInstance(instances.get(Paths.get(row.configuration.instancePath)));
+			TerminationController termination = row.configuration.createTermination(solver);
+			row.solution = row.configuration.run(solver, termination,
+					row.configuration.createRandom());
+		} catch (Exception e) {
+			row.error = e.toString();
+		}
+	}
+
+	private String format(Row row) {
+		String instanceName = null;
+		String sls = null;
+		String seed = null;
+		if (row.configuration != null) {
+			instanceName = Paths.get(row.configuration.instancePath).getFileName().toString();
+			sls = row.configuration.sls;
+			seed = Long.toString(row.configuration.seed);
+		}
+		Solution solution = row.solution;
+		switch (format) {
+		case CSV:
+			String result = ",,,";
+			if (solution != null) {
+				result = solution.weightedTardiness + "," + solution.iterations + ","
+						+ solution.evaluations + "," + solution.runtime;
+			}
+			return row.number + "," + csv(instanceName) + "," + csv(sls) + "," + csv(seed) + ","
+					+ result + "," + csv(row.error);
+		case JSON:
+			StringBuilder json = new StringBuilder();
+			json.append("{\"row\":").append(row.number).append(",\"instance\":")
+					.append(json(instanceName)).append(",\"sls\":").append(json(sls))
+					.append(",\"seed\":").append(seed == null ? "null" : seed);
+			if (solution != null) {
+				json.append(",\"weighted_tardiness\":").append(solution.weightedTardiness)
+						.append(",\"iterations\":").append(solution.iterations)
+						.append(",\"evaluations\":").append(solution.evaluations)
+						.append(",\"runtime\":").append(solution.runtime);
+			}
+			json.append(",\"error\":").append(json(row.error)).append('}');
+			return json.toString();
+		default:
+			throw new RuntimeException("Undefined Format: " + format);
+		}
+	}
+
+	/**
+	 * Returns a CSV field, quoted if needed
+	 */
+	private static String csv(String value) {
+		if (value == null) {
+			return "";
+		}
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+			return value;
+		}
+		return "\"" + value.replace("\"", "\"\"") + "\"";
+	}
+
+	/**
+	 * Returns a JSON string (or null)
+	 */
+	private static String json(String value) {
+		if (value == null) {
+			return "null";
+		}
+		StringBuilder json = new StringBuilder("\"");
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			} else if (c < 0x20) {
+				json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+			} else {
+				json.append(c);
+			}
+		}
+		return json.append('"').toString();
+	}
+}
@@ -1,21 +1,34 @@
 package main;
 
-import java.io.BufferedWriter;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import main.PFSPInstance.InitializationMethod;
+import util.FastRandom;
 
 /**
  * Class that provides easy access to running benchmarks for all the algorithms
  * (with all the combinations of parameters).
  * 
+ * The (instance, run) pairs of a benchmark are independent, so they can be
+ * executed in parallel (see {@link #setThreads(int)}). Every worker thread
+ * then has its own solver, and every run its own random generator. These are
+ * split off a single generator, in the order in which the runs are listed, so
+ * a benchmark is reproducible with {@link #setSeed(long)} regardless of the
+ * number of threads (as far as the wall-clock budgets allow, or exactly with
+ * {@link #setEvaluationBudget(long)}).
+ * 
  * @author Tom Jaspers
  * 
  */
@@ -24,49 +37,146 @@ public class Benchmarker {
 	List<PFSPInstance> instances;
 	String resultsPath;
 
+	/* The catalog of which instances is the lazy list, if any */
+	private InstanceCatalog catalog;
+
+	/* Number of runs that are executed in parallel */
+	private int threads = 1;
+
+	/* The random generators of the runs are split off this one */
+	private FastRandom rnd = new FastRandom();
+
+	/* Number of evaluations every run may do, or 0 to use time budgets */
+	private long evaluationBudget = 0;
+
+	/* Aggregates the results of the reported runs (optional) */
+	private ResultAggregator resultAggregator;
+
+	/* Stored VND run times for the time budgets (null to always measure) */
+	private CalibrationCache calibrationCache;
+
+	/* Maximum run time of the warm-up (ms), and its statistics once done */
+	private long warmupTime = 60000;
+	private WarmupHarness.Result warmupResult;
+
+	/* The solver of the current (worker) thread */
+	private final ThreadLocal<SLSSolver> solvers = new ThreadLocal<SLSSolver>() {
+		@Override
+		protected SLSSolver initialValue() {
+			return new SLSSolver();
+		}
+	};
+
+	/**
+	 * Schedules the runs with the largest instances (the longest ones) first,
+	 * so that no long run is left to finish on its own at the end
+	 */
+	private static final Comparator<BenchmarkRun<?>> LONGEST_FIRST = new Comparator<BenchmarkRun<?>>() {
+		@Override
+		public int compare(BenchmarkRun<?> a, BenchmarkRun<?> b) {
+			return Long.compare(b.getEstimatedCost(), a.getEstimatedCost());
+		}
+	};
+
 	public Benchmarker(List<PFSPInstance> instances, String resultsPath) {
 		this.instances = instances;
 		this.resultsPath = resultsPath;
 	}
 
 	/**
-	 * Main benchmarking function. Warms up the JVM,
-	 * 
+	 * Benchmarks the instances of a catalog, which are only loaded when their
+	 * runs start (on the worker threads, so in parallel), and can be
+	 * collected again once their runs are done (see
+	 * {@link InstanceCatalog#getInstances()})
+	 */
+	public Benchmarker(InstanceCatalog catalog, String resultsPath) {
+		this(catalog.getInstances(), resultsPath);
+		this.catalog = catalog;
+	}
+
+	/**
+	 * Seeds the random generators of the runs
+	 */
+	public void setSeed(long seed) {
+		this.rnd = new FastRandom(seed);
+	}
+
+	/**
+	 * Gives every run a budget of evaluations instead of run time, so the
+	 * results of a seeded benchmark are fully reproducible (also when running
+	 * in parallel, or on another machine). A budget of 0 restores the time
+	 * budgets.
+	 */
+	public void setEvaluationBudget(long evaluationBudget) {
+		if (evaluationBudget < 0) {
+			throw new RuntimeException("Invalid evaluation budget: " + evaluationBudget);
+		}
+		this.evaluationBudget = evaluationBudget;
+	}
+
+	/**
+	 * Sets the cache that the VND run times (for the time budgets) are taken
+	 * from, so they are only measured once per instance
+	 */
+	public void setCalibrationCache(CalibrationCache calibrationCache) {
+		this.calibrationCache = calibrationCache;
+	}
+
+	/**
+	 * Sets the aggregator that the results of the runs are added to as they
+	 * finish. Its summary and QRTDs are written with the results of each
+	 * benchmark (SUMMARY_* and QRTD_* files).
+	 */
+	public void setResultAggregator(ResultAggregator resultAggregator) {
+		this.resultAggregator = resultAggregator;
+	}
+
+	/**
+	 * Sets the number of runs that are executed in parallel (1, the default,
+	 * executes them one after another on the calling thread)
+	 */
+	public void setThreads(int threads) {
+		if (threads < 1) {
+			throw new RuntimeException("Invalid number of threads: " + threads);
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * Sets the maximum run time of the warm-up in milliseconds (see
+	 * {@link WarmupHarness}), 0 to skip it
+	 */
+	public void setWarmupTime(long warmupTime) {
+		if (warmupTime < 0) {
+			throw new RuntimeException("Invalid warm-up time: " + warmupTime);
+		}
+		this.warmupTime = warmupTime;
+	}
+
+	/**
+	 * Main benchmarking function. Warms up the JVM, and benchmarks the two
+	 * algorithms.
 	 */
 	public void benchmark() {
-		System.out.print("Warming up the JVM..");
-		warmupJvm(); // this shouldn't output any printing
-		System.out.println("done!");
+		warmUp();
 		System.out.println("Benchmarking IG vs SA..");
 		bench();
 	}
 
 	/**
-	 * Warms up the JVM by running both benchmarking algorithms on a reduced
-	 * instance size.
+	 * Warms up the JVM on the first instance, until the JIT reached a steady
+	 * state (see {@link WarmupHarness}). The statistics of the warm-up are
+	 * written with the results of the next benchmark.
 	 */
-	private void warmupJvm() {
-		PrintStream original = System.out;
-		try {
-			/*
-			 * Set System.out to an OutputStream that does nothing, to prevent
-			 * the useless benchmarking results from the benchmark
-			 */
-			System.setOut(new PrintStream(new OutputStream() {
-				@Override
-				public void write(int b) throws IOException {
-					// do nothing
-				}
-			}));
-			/* Warm up with 1 one of the bigger instances */
-			bench(instances.subList(instances.size() - 1, instances.size() - 1), false);
-
-		} catch (Exception e) {
-			e.printStackTrace();
-		} finally {
-			System.setOut(original);
+	public void warmUp() {
+		if (warmupTime == 0 || instances.isEmpty()) {
+			return;
 		}
-
+		System.out.print("Warming up the JVM..");
+		WarmupHarness warmupHarness = new WarmupHarness(instances.get(0));
+		warmupHarness.setMaximumTime(warmupTime);
+		warmupResult = warmupHarness.run();
+		System.out.println(warmupResult);
 	}
 
 	/**
@@ -81,48 +191,69 @@ public class Benchmarker {
 	 * Perform benchmark of the 2 algorithms with our chosen parameters. New
 	 * seed every run, shared seed between the 2 algos.
 	 */
-	private void bench(List<PFSPInstance> instances, boolean report) {
+	private void bench(List<PFSPInstance> instances, final boolean report) {
 		// ig params
-		int d = 4;
-		double t = 0.4;
+		final int d = 4;
+		final double t = 0.4;
 		// sa params
-		InitializationMethod initialMethod = InitializationMethod.SLACK_HEURISTIC;
-		int temp = 150;
-		double searchStepsMultiplier = 0.20;
-		double coolingModifier = 1.45;
+		final InitializationMethod initialMethod = InitializationMethod.SLACK_HEURISTIC;
+		final int temp = 150;
+		final double searchStepsMultiplier = 0.20;
+		final double coolingModifier = 1.45;
 		// the rest
-		int iterationsPerInstance = 5;
-		SLSSolver solver = new SLSSolver();
-		Solution solutionIG = null;
-		Solution solutionSA = null;
-		List<Tuple<Integer, Integer>> wtTuples = new ArrayList<Tuple<Integer, Integer>>();
-		for (PFSPInstance instance : instances) {
-			wtTuples.clear();
-			solver.setInstance(instance);
-			// Maximum run time = 100x run time VND
-			long maximumRuntime = solver.calculateMaximumRuntime(100L);
-			// We won't allow it to run longer than 2 minutes (don't have
-			// dedicated pc to do this...)
-			if (maximumRuntime > 120000) {
-				maximumRuntime = 120000;
-			}
+		final int iterationsPerInstance = 5;
+		List<BenchmarkRun<Tuple<Integer, Integer>>> runs = new ArrayList<BenchmarkRun<Tuple<Integer, Integer>>>();
+		for (int index = 0; index < instances.size(); index++) {
+			// Maximum run time = 100x run time VND. We won't allow it to run
+			// longer than 2 minutes (don't have dedicated pc to do this...)
+			final MaximumRuntime maximumRuntime = new MaximumRuntime(100L, 120000);
+			long estimatedCost = estimateCost(instances, index);
 			for (int i = 0; i < iterationsPerInstance; i++) {
-				System.out.println(instance.getInstanceName() + " - run " + (i + 1) + "/"
-						+ iterationsPerInstance);
+				final int run = i;
 				// We want the two algorithms to share the same seed per
 				// iteration, so we pass it here
-				Random rnd = new Random();
-				// Do the actual calculation
-				solutionIG = solver.iteratedGreedy(d, t, maximumRuntime, rnd);
-				solutionSA = solver.simulatedAnnealing(initialMethod, temp, searchStepsMultiplier,
-						coolingModifier, maximumRuntime, rnd);
-				// Save the results
-				wtTuples.add(new Tuple<Integer, Integer>(solutionIG.weightedTardiness,
-						solutionSA.weightedTardiness));
+				final Random runRnd = rnd.split();
+				runs.add(new BenchmarkRun<Tuple<Integer, Integer>>(instances, index, estimatedCost) {
+					@Override
+					public Tuple<Integer, Integer> call() {
+						PFSPInstance instance = getInstance();
+						long runtime = maximumRuntime.get(instance);
+						System.out.println(instance.getInstanceName() + " - run " + (run + 1)
+								+ "/" + iterationsPerInstance);
+						SLSSolver solver = getSolver(instance);
+						// Do the actual calculation
+						Solution solutionIG = solver.iteratedGreedy(d, t,
+								createTermination(runtime), runRnd);
+						Solution solutionSA = solver.simulatedAnnealing(initialMethod, temp,
+								searchStepsMultiplier, coolingModifier, createTermination(runtime),
+								runRnd);
+						if (report) {
+							aggregate("IG", instance, solutionIG);
+							aggregate("SA", instance, solutionSA);
+						}
+						// Save the results
+						return new Tuple<Integer, Integer>(solutionIG.weightedTardiness,
+								solutionSA.weightedTardiness);
+					}
+				});
 			}
-			if (report == true) {
-				// Log the results to file
-				logResults("IG_vs_SA-" + instance.getInstanceName(), wtTuples);
+		}
+		ResultWriter resultWriter = null;
+		if (report == true) {
+			// Created before the runs, so a bad results folder fails early
+			resultWriter = new ResultWriter(resultsPath);
+		}
+		List<Tuple<Integer, Integer>> results = execute(runs);
+		if (report == true) {
+			// Log the results to file, per instance
+			try {
+				for (int i = 0; i < instances.size(); i++) {
+					resultWriter.write("IG_vs_SA-" + getInstanceName(instances, i), results
+							.subList(i * iterationsPerInstance, (i + 1) * iterationsPerInstance));
+				}
+				writeAggregates(resultWriter, "IG_vs_SA");
+			} finally {
+				resultWriter.close();
 			}
 		}
 	}
@@ -130,129 +261,315 @@ public class Benchmarker {
 	/**
 	 * Get a solution quality trace for IG
 	 */
-	public void qrtdIG(List<PFSPInstance> instances, boolean report) {
-		int iterationsPerInstance = 25;
+	public void qrtdIG(List<PFSPInstance> instances, final boolean report) {
+		final int iterationsPerInstance = 25;
 		// Fixed params
-		int d = 4;
-		double t = 0.4;
-		SLSSolver solver = new SLSSolver();
-		Solution solution = null;
-		for (PFSPInstance instance : instances) {
-			solver.setInstance(instance);
+		final int d = 4;
+		final double t = 0.4;
+		final ResultWriter resultWriter = new ResultWriter(resultsPath);
+		List<BenchmarkRun<Void>> runs = new ArrayList<BenchmarkRun<Void>>();
+		for (int index = 0; index < instances.size(); index++) {
+			PFSPInstance instance = instances.get(index);
 			// Maximum run time = 10x(100x run time VND)
-			long maximumRuntime = solver.calculateMaximumRuntime(1000L);
+			long maximumRuntime = calculateMaximumRuntime(instance, 1000L);
 			// We won't allow it to run longer than 10 minutes (don't have
 			// dedicated pc to do this...)
 			if (maximumRuntime > 600000) {
 				maximumRuntime = 600000;
 			}
-			System.out
-					.println("Going to run for " + maximumRuntime / 1000 + " seconds / iteration");
+			printBudget(instance, maximumRuntime);
 			for (int i = 0; i < iterationsPerInstance; i++) {
-				System.out.println(instance.getInstanceName() + " - run " + (i + 1) + "/"
-						+ iterationsPerInstance);
-				solution = solver.iteratedGreedy(d, t, maximumRuntime);
-				logSolutionQualityTrace("IG_SQT_" + instance.getInstanceName() + "_run" + i,
-						solution.qualityTraces);
-
+				final int run = i;
+				final long runtime = maximumRuntime;
+				final Random runRnd = rnd.split();
+				runs.add(new BenchmarkRun<Void>(instances, index, estimateCost(instances, index)) {
+					@Override
+					public Void call() {
+						PFSPInstance instance = getInstance();
+						System.out.println(instance.getInstanceName() + " - run " + (run + 1)
+								+ "/" + iterationsPerInstance);
+						Solution solution = getSolver(instance).iteratedGreedy(d, t,
+								createTermination(runtime), runRnd);
+						resultWriter.write("IG_SQT_" + instance.getInstanceName() + "_run"
+								+ run, solution.qualityTraces);
+						if (report) {
+							aggregate("IG", instance, solution);
+						}
+						return null;
+					}
+				});
+			}
+		}
+		try {
+			execute(runs);
+			if (report) {
+				writeAggregates(resultWriter, "IG_SQT");
 			}
+		} finally {
+			// Waits for the traces to be written
+			resultWriter.close();
 		}
 	}
 
 	/**
 	 * Get a solution quality trace for SA
 	 */
-	public void qrtdSA(List<PFSPInstance> instances, boolean report) {
-		int iterationsPerInstance = 25;
+	public void qrtdSA(List<PFSPInstance> instances, final boolean report) {
+		final int iterationsPerInstance = 25;
 		// Fixed
-		InitializationMethod initialMethod = InitializationMethod.SLACK_HEURISTIC;
-		int t = 150;
-		double searchStepsMultiplier = 0.20;
-		double coolingModifier = 1.45;
-
-		SLSSolver solver = new SLSSolver();
-		Solution solution = null;
-		for (PFSPInstance instance : instances) {
-			solver.setInstance(instance);
+		final InitializationMethod initialMethod = InitializationMethod.SLACK_HEURISTIC;
+		final int t = 150;
+		final double searchStepsMultiplier = 0.20;
+		final double coolingModifier = 1.45;
+
+		final ResultWriter resultWriter = new ResultWriter(resultsPath);
+		List<BenchmarkRun<Void>> runs = new ArrayList<BenchmarkRun<Void>>();
+		for (int index = 0; index < instances.size(); index++) {
+			PFSPInstance instance = instances.get(index);
 			// Maximum run time = 10x(100x run time VND)
-			long maximumRuntime = solver.calculateMaximumRuntime(1000L);
+			long maximumRuntime = calculateMaximumRuntime(instance, 1000L);
 			// We won't allow it to run longer than 10 minutes (don't have
 			// dedicated pc to do this...)
 			if (maximumRuntime > 600000) {
 				maximumRuntime = 600000;
 			}
-			System.out
-					.println("Going to run for " + maximumRuntime / 1000 + " seconds / iteration");
+			printBudget(instance, maximumRuntime);
 			for (int i = 0; i < iterationsPerInstance; i++) {
-				System.out.println(instance.getInstanceName() + " - run " + (i + 1) + "/"
-						+ iterationsPerInstance);
-				solution = solver.simulatedAnnealing(initialMethod, t, searchStepsMultiplier,
-						coolingModifier, maximumRuntime);
-				logSolutionQualityTrace("SA_SQT_" + instance.getInstanceName() + "_run" + i,
-						solution.qualityTraces);
-
+				final int run = i;
+				final long runtime = maximumRuntime;
+				final Random runRnd = rnd.split();
+				runs.add(new BenchmarkRun<Void>(instances, index, estimateCost(instances, index)) {
+					@Override
+					public Void call() {
+						PFSPInstance instance = getInstance();
+						System.out.println(instance.getInstanceName() + " - run " + (run + 1)
+								+ "/" + iterationsPerInstance);
+						Solution solution = getSolver(instance).simulatedAnnealing(initialMethod,
+								t, searchStepsMultiplier, coolingModifier, createTermination(runtime),
+								runRnd);
+						resultWriter.write("SA_SQT_" + instance.getInstanceName() + "_run"
+								+ run, solution.qualityTraces);
+						if (report) {
+							aggregate("SA", instance, solution);
+						}
+						return null;
+					}
+				});
 			}
 		}
+		try {
+			execute(runs);
+			if (report) {
+				writeAggregates(resultWriter, "SA_SQT");
+			}
+		} finally {
+			// Waits for the traces to be written
+			resultWriter.close();
+		}
 	}
 
 	/**
-	 * Write the solution quality traces to file
-	 * 
-	 * @param fileName
-	 * @param solutionQualityTraces
+	 * Adds the result of a run to the aggregator, if there is one
 	 */
-	private void logSolutionQualityTrace(String fileName,
-			List<SolutionQualityTrace> solutionQualityTraces) {
-		final String fs = System.getProperty("file.separator");
-		BufferedWriter writer = null;
-		try {
-			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(resultsPath
-					+ fs + fileName + ".txt")));
-			for (SolutionQualityTrace solutionQualityTrace : solutionQualityTraces) {
-				writer.write(solutionQualityTrace.toString());
-				writer.newLine();
-				writer.flush();
+	private void aggregate(String algorithm, PFSPInstance instance, Solution solution) {
+		if (resultAggregator != null) {
+			resultAggregator.add(algorithm, instance.getInstanceName(), solution);
+		}
+	}
+
+	/**
+	 * Writes the statistics of the warm-up, and the summary and QRTDs of the
+	 * aggregator, if there are any
+	 */
+	private void writeAggregates(ResultWriter resultWriter, String name) {
+		if (warmupResult != null) {
+			resultWriter.write("WARMUP_" + name, warmupResult.getLines());
+		}
+		if (resultAggregator != null) {
+			resultWriter.write("SUMMARY_" + name, resultAggregator.getSummaryLines());
+			resultWriter.write("QRTD_" + name, resultAggregator.getQrtdLines());
+			List<String> withoutBestKnown = resultAggregator.getInstancesWithoutBestKnown();
+			if (!withoutBestKnown.isEmpty()) {
+				System.out.println("No best known weighted tardiness (no RPD/QRTD) for: "
+						+ withoutBestKnown);
 			}
-			writer.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		} finally {
-			if (writer != null) {
-				try {
-					writer.close();
-				} catch (Exception e) {
-					e.printStackTrace();
-				}
+		}
+	}
+
+	/**
+	 * Calculates the maximum run time for an instance (see
+	 * {@link SLSSolver#calculateMaximumRuntime(long)}). The quality traces do
+	 * this before any of the runs are started, so the calibration never
+	 * competes with them for a core; bench does it in the first run of every
+	 * instance (see {@link MaximumRuntime}), so the instances don't have to be
+	 * loaded up front.
+	 */
+	private long calculateMaximumRuntime(PFSPInstance instance, long multiplier) {
+		if (evaluationBudget > 0) {
+			/* Not needed, the runs are bounded by their evaluations */
+			return 0;
+		}
+		SLSSolver solver = getSolver(instance);
+		solver.setCalibrationCache(calibrationCache);
+		return solver.calculateMaximumRuntime(multiplier);
+	}
+
+	/**
+	 * Returns a new termination controller for a run: with the evaluation
+	 * budget if one is set, otherwise with the given run time
+	 */
+	private TerminationController createTermination(long maximumRuntime) {
+		if (evaluationBudget > 0) {
+			return new TerminationController(evaluationBudget,
+					TerminationController.Clock.EVALUATIONS);
+		}
+		return new TerminationController(maximumRuntime);
+	}
+
+	private void printBudget(PFSPInstance instance, long maximumRuntime) {
+		if (evaluationBudget > 0) {
+			System.out.println(instance.getInstanceName() + ": going to run for "
+					+ evaluationBudget + " evaluations / iteration");
+		} else {
+			System.out.println(instance.getInstanceName() + ": going to run for "
+					+ maximumRuntime / 1000 + " seconds / iteration");
+		}
+	}
+
+	/**
+	 * Returns the estimated cost of the runs on an instance: its number of
+	 * jobs times its number of machines (the maximum run time is a multiple
+	 * of the VND run time, which grows with the size). For the instances of
+	 * the catalog, the size is read from the header of the file, so the
+	 * instance isn't loaded to schedule its runs.
+	 */
+	private long estimateCost(List<PFSPInstance> instances, int index) {
+		if (catalog != null && instances == this.instances) {
+			InstanceCatalog.Entry entry = catalog.getEntries().get(index);
+			try {
+				return entry.getSize();
+			} catch (IOException e) {
+				throw new RuntimeException("Failed to read the size of instance "
+						+ entry.getName() + ": " + e.getMessage(), e);
 			}
 		}
+		PFSPInstance instance = instances.get(index);
+		return (long) instance.getNumberOfJobs() * instance.getNumberOfMachines();
 	}
 
 	/**
-	 * Write the results of benchmark to a file
+	 * Returns the name of an instance, from the catalog (without loading the
+	 * instance) if it is one of its instances
 	 */
-	private void logResults(String fileName, List<Tuple<Integer, Integer>> wtTuples) {
-		final String fs = System.getProperty("file.separator");
-		BufferedWriter writer = null;
-		try {
-			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(resultsPath
-					+ fs + fileName + ".txt")));
+	private String getInstanceName(List<PFSPInstance> instances, int index) {
+		if (catalog != null && instances == this.instances) {
+			return catalog.getEntries().get(index).getName();
+		}
+		return instances.get(index).getInstanceName();
+	}
 
-			for (Tuple<Integer, Integer> tuple : wtTuples) {
-				writer.write(tuple.toString());
-				writer.newLine();
-				writer.flush();
+	/**
+	 * Returns the solver of the current thread, set to the given instance
+	 */
+	private SLSSolver getSolver(PFSPInstance instance) {
+		SLSSolver solver = solvers.get();
+		solver.setInstance(instance);
+		return solver;
+	}
+
+	/**
+	 * Executes the runs, and returns their results in the order of the given
+	 * list. With more than one thread, the runs are scheduled longest first on
+	 * a fixed pool of worker threads.
+	 */
+	private <T> List<T> execute(List<BenchmarkRun<T>> runs) {
+		List<T> results = new ArrayList<T>(runs.size());
+		if (threads == 1) {
+			for (BenchmarkRun<T> run : runs) {
+				results.add(run.call());
 			}
-		} catch (IOException e) {
-			e.printStackTrace();
+			return results;
+		}
+
+		List<BenchmarkRun<T>> schedule = new ArrayList<BenchmarkRun<T>>(runs);
+		/* Stable sort, so runs on the same instance keep their order */
+		Collections.sort(schedule, LONGEST_FIRST);
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			Map<BenchmarkRun<T>, Future<T>> futures = new IdentityHashMap<BenchmarkRun<T>, Future<T>>();
+			for (BenchmarkRun<T> run : schedule) {
+				futures.put(run, executor.submit(run));
+			}
+			for (BenchmarkRun<T> run : runs) {
+				results.add(futures.get(run).get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for the benchmark runs", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Benchmark run failed", e.getCause());
 		} finally {
-			if (writer != null) {
-				try {
-					writer.close();
-				} catch (Exception e) {
-					e.printStackTrace();
-				}
+			executor.shutdownNow();
+		}
+		return results;
+	}
+
+	/**
+	 * The maximum run time of the runs on an instance, calculated by the first
+	 * of them that starts. The other runs on the instance wait for it, but
+	 * the runs on other instances go on, so with more than one thread a VND
+	 * run time that isn't in the calibration cache is measured next to them.
+	 */
+	private class MaximumRuntime {
+		private final long multiplier;
+		private final long limit;
+		private long maximumRuntime = -1;
+
+		MaximumRuntime(long multiplier, long limit) {
+			this.multiplier = multiplier;
+			this.limit = limit;
+		}
+
+		synchronized long get(PFSPInstance instance) {
+			if (maximumRuntime < 0) {
+				maximumRuntime = Math.min(calculateMaximumRuntime(instance, multiplier), limit);
 			}
+			return maximumRuntime;
+		}
+	}
+
+	/**
+	 * A single, independent run of a benchmark on an instance
+	 */
+	private static abstract class BenchmarkRun<T> implements Callable<T> {
+		private final List<PFSPInstance> instances;
+		private final int instanceIndex;
+		private final long estimatedCost;
+
+		/**
+		 * The instance is taken from the list when the run starts, so a lazily
+		 * loading list (see {@link InstanceCatalog#getInstances()}) doesn't
+		 * have to keep all instances of the benchmark in memory. The
+		 * estimated cost (see {@link Benchmarker#estimateCost(List, int)})
+		 * orders the runs, longest first.
+		 */
+		BenchmarkRun(List<PFSPInstance> instances, int instanceIndex, long estimatedCost) {
+			this.instances = instances;
+			this.instanceIndex = instanceIndex;
+			this.estimatedCost = estimatedCost;
+		}
+
+		PFSPInstance getInstance() {
+			return instances.get(instanceIndex);
 		}
+
+		long getEstimatedCost() {
+			return estimatedCost;
+		}
+
+		@Override
+		public abstract T call();
 	}
 
 	/**
@@ -0,0 +1,195 @@
+package main;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Persistent store of the VND run times that the maximum run times are
+ * derived from (see {@link SLSSolver#calculateMaximumRuntime(long)}), so that
+ * the VND doesn't have to be run again on every invocation (e.g., by irace).
+ *
+ * A calibration is the median run time of {@link #CALIBRATION_RUNS} VND runs.
+ * It is keyed by the content hash of the instance and by a fingerprint of the
+ * JVM and host, as the run time of the VND depends on both. The store is a
+ * properties file, which is updated under a file lock and replaced
+ * atomically, so concurrent invocations can share it.
+ *
+ * @author Tom Jaspers
+ *
+ */
+public class CalibrationCache {
+
+	/* Number of VND runs of which the median run time is stored */
+	static final int CALIBRATION_RUNS = 5;
+
+	private final Path file;
+	private final String fingerprint;
+	private final Properties vndTimes = new Properties();
+	private boolean loaded = false;
+
+	/* Ignore the stored calibrations (once per instance) */
+	private boolean recalibrate = false;
+	private final Set<String> recalibrated = new HashSet<String>();
+
+	/**
+	 * Uses the default file (see {@link #getDefaultFile()})
+	 */
+	public CalibrationCache() {
+		this(getDefaultFile());
+	}
+
+	public CalibrationCache(Path file) {
+		this.file = file;
+		this.fingerprint = createFingerprint();
+	}
+
+	/**
+	 * Returns ~/.pfsp-sls/calibration.properties
+	 */
+	public static Path getDefaultFile() {
+		return Paths.get(System.getProperty("user.home"), ".pfsp-sls", "calibration.properties");
+	}
+
+	/**
+	 * If set, every instance is calibrated again (the first time it is
+	 * requested), replacing the stored calibration
+	 */
+	public void setRecalibrate(boolean recalibrate) {
+		this.recalibrate = recalibrate;
+	}
+
+	/**
+	 * Returns the run time (in nanoseconds) of the VND on the instance of the
+	 * solver: the stored one if there is one, otherwise it is measured (with
+	 * the solver) and stored
+	 */
+	public synchronized long getVndTime(SLSSolver solver) {
+		String key = getKey(solver.instance);
+		if (!recalibrate || recalibrated.contains(key)) {
+			load();
+			String vndTime = vndTimes.getProperty(key);
+			if (vndTime != null) {
+				return Long.parseLong(vndTime);
+			}
+		}
+
+		long vndTime = calibrate(solver);
+		recalibrated.add(key);
+		store(key, vndTime);
+		return vndTime;
+	}
+
+	/**
+	 * Returns the median of {@link #CALIBRATION_RUNS} VND run times
+	 */
+	private long calibrate(SLSSolver solver) {
+		long[] vndTimes = new long[CALIBRATION_RUNS];
+		for (int i = 0; i < CALIBRATION_RUNS; i++) {
+			vndTimes[i] = solver.measureVndTime();
+		}
+		Arrays.sort(vndTimes);
+		return vndTimes[CALIBRATION_RUNS / 2];
+	}
+
+	private String getKey(PFSPInstance instance) {
+		return instance.getInstanceName() + "." + instance.getContentHash() + "." + fingerprint;
+	}
+
+	/**
+	 * Reads the stored calibrations, the first time they are needed. A file
+	 * that can't be read is ignored (its instances are calibrated again).
+	 */
+	private void load() {
+		if (loaded) {
+			return;
+		}
+		loaded = true;
+		if (!Files.exists(file)) {
+			return;
+		}
+		try (InputStream in = Files.newInputStream(file)) {
+			vndTimes.load(in);
+		} catch (Exception e) {
+			System.err.println("Failed to read calibrations from " + file + ": "
+					+ e.getMessage());
+		}
+	}
+
+	/**
+	 * Adds a calibration to the file. The file is read again first, so the
+	 * calibrations stored by other processes in the meantime are kept.
+	 */
+	private void store(String key, long vndTime) {
+		vndTimes.setProperty(key, Long.toString(vndTime));
+		Path directory = file.toAbsolutePath().getParent();
+		Path lockFile = directory.resolve(file.getFileName() + ".lock");
+		try {
+			Files.createDirectories(directory);
+			try (FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE)) {
+				FileLock lock = lockChannel.lock();
+				try {
+					storeLocked(key, vndTime, directory);
+				} finally {
+					lock.release();
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("Failed to store calibration in " + file + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Merges a calibration into the file, while holding the lock
+	 */
+	private void storeLocked(String key, long vndTime, Path directory) throws IOException {
+		Properties merged = new Properties();
+		if (Files.exists(file)) {
+			try (InputStream in = Files.newInputStream(file)) {
+				merged.load(in);
+			}
+		}
+		merged.setProperty(key, Long.toString(vndTime));
+
+		Path temporaryFile = Files.createTempFile(directory, "calibration", ".tmp");
+		try (OutputStream out = Files.newOutputStream(temporaryFile)) {
+			merged.store(out, "VND run times (ns): <instance>.<content hash>.<fingerprint>");
+		}
+		Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		vndTimes.putAll(merged);
+	}
+
+	/**
+	 * Returns a fingerprint of the JVM and host the run times are measured
+	 * on
+	 */
+	private static String createFingerprint() {
+		String hostName = System.getenv("HOSTNAME");
+		if (hostName == null) {
+			try {
+				hostName = InetAddress.getLocalHost().getHostName();
+			} catch (IOException e) {
+				hostName = "unknown";
+			}
+		}
+		String fingerprint = System.getProperty("java.vm.vendor") + "|"
+				+ System.getProperty("java.vm.name") + "|" + System.getProperty("java.version")
+				+ "|" + System.getProperty("os.name") + "|" + System.getProperty("os.arch") + "|"
+				+ Runtime.getRuntime().availableProcessors() + "|" + hostName;
+		return String.format("%08x", fingerprint.hashCode());
+	}
+}
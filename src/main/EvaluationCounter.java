@@ -0,0 +1,35 @@
+package main;
+
+/**
+ * Counts the (possibly partial or bounded) objective evaluations of a run,
+ * i.e., the calculations of the weighted tardiness of a (partial) jobs order
+ * by a {@link MoveEvaluator}, for a move or an insertion it considers. The
+ * evaluators of a run share one counter, which can serve as a
+ * machine-independent budget (see
+ * {@link TerminationController.Clock#EVALUATIONS}).
+ * 
+ * Recalculations that only keep the committed state of an evaluator up to
+ * date (loading a solution, removing or inserting a job, applying a move
+ * that was already evaluated) are not counted.
+ * 
+ * A counter is not thread-safe; every thread of a run has its own.
+ * 
+ * @author Tom Jaspers
+ * 
+ */
+public class EvaluationCounter {
+
+	private long evaluations;
+
+	public void increment() {
+		evaluations++;
+	}
+
+	public void add(long numberOfEvaluations) {
+		evaluations += numberOfEvaluations;
+	}
+
+	public long getEvaluations() {
+		return evaluations;
+	}
+}
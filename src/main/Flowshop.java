@@ -1,6 +1,12 @@
 package main;
 
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import org.apache.commons.cli.BasicParser;
 import org.apache.commons.cli.CommandLine;
@@ -9,8 +15,6 @@ import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 
-import main.PFSPInstance.InitializationMethod;
-
 /**
  * Main class of the program, handling all CLI input to call the proper methods.
  * 
@@ -26,26 +30,7 @@ public class Flowshop {
 	 * @throws Exception
 	 */
 	public static void main(String[] args) throws Exception {
-		Options options = new Options();
-		// GENERAL args
-		options.addOption("help", false, "Display this help");
-		options.addOption("run", false, "Run a choice of algorithm on a single instance");
-		options.addOption("sqt", false,
-				"Perform and log a solution quality trace on the 6 instances");
-		options.addOption("bench", false, "Perform the benchmarks of the two algorithms");
-		options.addOption("results", true,
-				"Complete path pointing to folder where results will be written");
-		options.addOption("sls", true, "Choice of SLS algorithm");
-		options.addOption("instance", true, "Instance to load");
-		options.addOption("time", true, "Maximum runtime");
-		// SA args
-		options.addOption("sa_init", true, "SA: Initialization method");
-		options.addOption("sa_t", true, "SA: Initial starting temperature");
-		options.addOption("sa_steps", true, "SA: Multiplier for the search steps per temperature");
-		options.addOption("sa_cooling", true, "SA: Modifier that dictates the cooling behaviour");
-		// IG args
-		options.addOption("ig_t", true, "IG: Multiplier for the initial starting temperature");
-		options.addOption("ig_d", true, "IG: destruction parameter");
+		Options options = createOptions();
 		// create the command line parser
 		CommandLineParser parser = new BasicParser();
 		HelpFormatter helpFormatter = new HelpFormatter();
@@ -59,89 +44,20 @@ public class Flowshop {
 				return;
 			}
 
-			// Initialize vars
-			SLSSolver solver = new SLSSolver();
 			String sls = null;
-			PFSPInstance instance = null;
-			long maxRuntime = 0l;
-			// sa vars
-			InitializationMethod init = null;
-			int temp = 0;
-			double steps = 0.0;
-			double coolingModifier = 0.0;
-			// ig vars
-			double t = 0.0;
-			int d = 0;
 
 			if (line.hasOption("run")) {
-				// Check for the SLS algorithm (required)
-				if (line.hasOption("sls")) {
-					sls = line.getOptionValue("sls");
-				} else {
-					throw new ParseException("sls should be set");
-				}
-				if (line.hasOption("sa_init")) {
-					String init_string = line.getOptionValue("sa_init");
-					if (init_string.equals("random")) {
-						init = InitializationMethod.RANDOM_PERMUTATION;
-					} else if (init_string.equals("slack")) {
-						init = InitializationMethod.SLACK_HEURISTIC;
-					}
-				} else {
-					init = InitializationMethod.RANDOM_PERMUTATION;
-				}
-				// Check for initial temperature (optional)
-				if (line.hasOption("sa_t")) {
-					temp = Integer.parseInt(line.getOptionValue("sa_t"));
-				} else {
-					temp = 150; // [100, 200]
-				}
-				// Check for search steps multiplier
-				if (line.hasOption("sa_steps")) {
-					steps = Double.parseDouble(line.getOptionValue("sa_steps"));
-				} else {
-					steps = 0.20; // [0.10, 0.25]
-				}
-				if (line.hasOption("sa_cooling")) {
-					coolingModifier = Double.parseDouble(line.getOptionValue("sa_cooling"));
-				} else {
-					coolingModifier = 1.45; // [1.00, 2.00]
-				}
-				// Check for d
-				if (line.hasOption("ig_d")) {
-					d = Integer.parseInt(line.getOptionValue("ig_d"));
-				} else {
-					d = 4;
-				}
-				// Check for d
-				if (line.hasOption("ig_t")) {
-					t = Double.parseDouble(line.getOptionValue("ig_t"));
-				} else {
-					t = 0.4;
-				}
-				// Check for the time (optional)
-				if (line.hasOption("time")) {
-					maxRuntime = 1000l * Long.parseLong(line.getOptionValue("time"));
-				} else {
+				RunConfiguration configuration = RunConfiguration.parse(line);
+				SLSSolver solver = new SLSSolver();
+				solver.setInstance(new PFSPInstance(configuration.getInstancePath()));
+				if (configuration.needsCalibration()) {
 					System.out.println("Calculating maximum run time (from VND run)...");
-					maxRuntime = solver.calculateMaximumRuntime(100L);
-				}
-				// Check for the instance (required)
-				if (line.hasOption("instance")) {
-					instance = new PFSPInstance(line.getOptionValue("instance"));
-					solver.setInstance(instance);
-				} else {
-					throw new ParseException("instance should be set");
-				}
-				Solution solution = null;
-				if (sls.equals("sa")) {
-					solution = solver.simulatedAnnealing(init, temp, steps, coolingModifier,
-							maxRuntime);
-				} else if (sls.equals("ig")) {
-					solution = solver.iteratedGreedy(d, t, maxRuntime);
-				} else {
-					throw new ParseException("invalid sls algorithm: " + sls);
+					solver.setCalibrationCache(createCalibrationCache(line));
 				}
+				TerminationController termination = configuration.createTermination(solver);
+				stopOnShutdown(termination);
+				Solution solution = configuration.run(solver, termination,
+						configuration.createRandom());
 				// Output results
 				System.out.print(solution.weightedTardiness);
 			} else if (line.hasOption("sqt")) {
@@ -159,15 +75,30 @@ public class Flowshop {
 				}
 
 				System.out.println("Generating solution quality traces");
+				InstanceCatalog catalog = createCatalog(line);
 				List<PFSPInstance> instances = new ArrayList<PFSPInstance>();
-				instances.add(initializeInstances("instances/", "50x20_1").get(0));
-				instances.add(initializeInstances("instances/", "60x20_1").get(0));
-				instances.add(initializeInstances("instances/", "70x20_1").get(0));
-				instances.add(initializeInstances("instances/", "80x20_1").get(0));
-				instances.add(initializeInstances("instances/", "90x20_1").get(0));
-				instances.add(initializeInstances("instances/", "100x20_1").get(0));
+				for (int numJobs = 50; numJobs <= 100; numJobs += 10) {
+					String instanceName = numJobs + "x20_1";
+					if (catalog.get(instanceName) == null) {
+						throw new ParseException("instance not found: " + instanceName);
+					}
+					instances.add(catalog.get(instanceName).load());
+				}
 
 				Benchmarker benchmarker = new Benchmarker(instances, resultsPath);
+				benchmarker.setResultAggregator(createResultAggregator(line, catalog));
+				benchmarker.setThreads(parseThreads(line));
+				benchmarker.setCalibrationCache(createCalibrationCache(line));
+				if (line.hasOption("evaluations")) {
+					benchmarker.setEvaluationBudget(parseEvaluations(line));
+				}
+				if (line.hasOption("seed")) {
+					benchmarker.setSeed(Long.parseLong(line.getOptionValue("seed")));
+				}
+				if (line.hasOption("warmup")) {
+					benchmarker.setWarmupTime(parseWarmupTime(line));
+				}
+				benchmarker.warmUp();
 				if (sls.equals("sa")) {
 					benchmarker.qrtdSA(instances, true);
 				} else if (sls.equals("ig")) {
@@ -183,9 +114,111 @@ public class Flowshop {
 					throw new ParseException("results should be set");
 				}
 
-				List<PFSPInstance> instances = initializeInstances("instances/");
-				Benchmarker benchmarker = new Benchmarker(instances, resultsPath);
+				// The instances are loaded when the benchmark gets to them
+				InstanceCatalog catalog = createCatalog(line);
+				Benchmarker benchmarker = new Benchmarker(catalog, resultsPath);
+				benchmarker.setResultAggregator(createResultAggregator(line, catalog));
+				benchmarker.setThreads(parseThreads(line));
+				benchmarker.setCalibrationCache(createCalibrationCache(line));
+				if (line.hasOption("evaluations")) {
+					benchmarker.setEvaluationBudget(parseEvaluations(line));
+				}
+				if (line.hasOption("warmup")) {
+					benchmarker.setWarmupTime(parseWarmupTime(line));
+				}
+				if (line.hasOption("seed")) {
+					benchmarker.setSeed(Long.parseLong(line.getOptionValue("seed")));
+				}
 				benchmarker.benchmark();
+			} else if (line.hasOption("daemon")) {
+				int threads = line.hasOption("threads") ? parseThreads(line) : Runtime
+						.getRuntime().availableProcessors();
+				SolverDaemon daemon = new SolverDaemon(Integer.parseInt(line
+						.getOptionValue("daemon")), threads, createCalibrationCache(line));
+				if (line.hasOption("warmup")) {
+					daemon.setWarmupTime(parseWarmupTime(line));
+				}
+				daemon.serve();
+			} else if (line.hasOption("batch")) {
+				BatchRunner.Format format = BatchRunner.Format.CSV;
+				if (line.hasOption("format")) {
+					String formatName = line.getOptionValue("format");
+					if (formatName.equals("json")) {
+						format = BatchRunner.Format.JSON;
+					} else if (!formatName.equals("csv")) {
+						throw new ParseException("invalid format: " + formatName);
+					}
+				}
+				BatchRunner batchRunner = new BatchRunner(parseThreads(line), format,
+						createCalibrationCache(line), System.out);
+				if (line.hasOption("seed")) {
+					batchRunner.setSeed(Long.parseLong(line.getOptionValue("seed")));
+				}
+				if (line.hasOption("warmup")) {
+					batchRunner.setWarmupTime(parseWarmupTime(line));
+				}
+				int failures = batchRunner.run(Paths.get(line.getOptionValue("batch")));
+				if (failures > 0) {
+					System.err.println(failures + " batch row(s) failed");
+				}
+			} else if (line.hasOption("tune")) {
+				if (!line.hasOption("sls")) {
+					throw new ParseException("sls should be set");
+				}
+				// Checked up front, as every experiment would fail on it
+				if (line.hasOption("evaluations") && line.hasOption("time")) {
+					throw new ParseException("evaluations and time can't both be set");
+				}
+				// The options of every experiment, as the FIXED_PARAMS of irace/hook-run
+				List<String> fixedArguments = new ArrayList<String>();
+				for (String option : new String[] { "sls", "evaluations", "time", "clock" }) {
+					if (line.hasOption(option)) {
+						fixedArguments.add("-" + option);
+						fixedArguments.add(line.getOptionValue(option));
+					}
+				}
+				InstanceCatalog catalog = InstanceCatalog.from(Paths.get(line.getOptionValue(
+						"instances", "irace/instances/")));
+				int threads = line.hasOption("threads") ? parseThreads(line) : Runtime
+						.getRuntime().availableProcessors();
+				RaceTuner tuner = new RaceTuner(ParameterSpace.read(Paths.get(line
+						.getOptionValue("tune"))), catalog.getEntries(), fixedArguments, threads,
+						createCalibrationCache(line), System.out);
+				if (line.hasOption("budget")) {
+					tuner.setBudget(Integer.parseInt(line.getOptionValue("budget")));
+				}
+				if (line.hasOption("seed")) {
+					tuner.setSeed(Long.parseLong(line.getOptionValue("seed")));
+				}
+				if (line.hasOption("warmup")) {
+					tuner.setWarmupTime(parseWarmupTime(line));
+				}
+				long start = System.currentTimeMillis();
+				String[] best = tuner.tune();
+				System.out.println("Best configuration (" + tuner.getExperiments()
+						+ " experiments in " + (System.currentTimeMillis() - start) + " ms):");
+				System.out.println(tuner.toString(best));
+			} else if (line.hasOption("convert")) {
+				List<Path> files = new ArrayList<Path>();
+				if (line.hasOption("instance")) {
+					files.add(Paths.get(line.getOptionValue("instance")));
+				} else {
+					try (DirectoryStream<Path> directory = Files.newDirectoryStream(Paths
+							.get("instances/"))) {
+						for (Path file : directory) {
+							String fileName = file.getFileName().toString();
+							if (Files.isRegularFile(file)
+									&& !fileName.endsWith(PFSPInstance.BINARY_EXTENSION)
+									&& !fileName.endsWith(".tmp")) {
+								files.add(file);
+							}
+						}
+					}
+					Collections.sort(files);
+				}
+				for (Path file : files) {
+					convertInstance(file);
+				}
 			} else {
 				throw new ParseException("No proper action selected");
 			}
@@ -198,42 +231,227 @@ public class Flowshop {
 	}
 
 	/**
-	 * Load all instances in a given folder (assuming naming conventions of
-	 * instance files)
+	 * Writes the binary version of an instance file, and reports the time it
+	 * takes to load the instance from either version
 	 */
-	public static List<PFSPInstance> initializeInstances(String path) {
-		return initializeInstances(path, null);
+	private static void convertInstance(Path file) throws Exception {
+		PFSPInstance instance = new PFSPInstance();
+		long startTime = System.nanoTime();
+		instance.readTextFile(file);
+		long textTime = System.nanoTime() - startTime;
+
+		Path binaryFile = PFSPInstance.getBinaryPath(file);
+		instance.writeBinaryFile(binaryFile);
+
+		startTime = System.nanoTime();
+		new PFSPInstance().readBinaryFile(binaryFile);
+		long binaryTime = System.nanoTime() - startTime;
+
+		System.out.println(String.format("%s: %d bytes -> %d bytes, load %.3f ms -> %.3f ms",
+				file.getFileName(), Files.size(file), Files.size(binaryFile), textTime / 1e6,
+				binaryTime / 1e6));
 	}
 
 	/**
-	 * Load an instance by its filename and path
+	 * Returns the budget in evaluations
 	 */
-	public static List<PFSPInstance> initializeInstances(String path, String instanceFileName) {
-		List<PFSPInstance> instances = new ArrayList<PFSPInstance>();
+	private static long parseEvaluations(CommandLine line) throws ParseException {
+		long evaluations = Long.parseLong(line.getOptionValue("evaluations"));
+		if (evaluations < 1) {
+			throw new ParseException("evaluations should be at least 1");
+		}
+		return evaluations;
+	}
 
-		/* If instanceFileName is not set, we just load all of the instances */
-		if (instanceFileName == null) {
-			for (int numJobs = 50; numJobs <= 100; numJobs += 10) {
-				for (int variation = 1; variation <= 10; variation++) {
-					instanceFileName = numJobs + "x20_" + variation;
-					try {
-						instances.add(new PFSPInstance(path + instanceFileName));
-					} catch (Exception e) {
-						System.err.println("Failed to load instance: " + instanceFileName);
-						// e.printStackTrace();
-					}
+	/**
+	 * Returns the calibration cache, from the given file (optional), which is
+	 * ignored if recalibration is requested
+	 */
+	private static CalibrationCache createCalibrationCache(CommandLine line) {
+		CalibrationCache calibrationCache;
+		if (line.hasOption("calibration")) {
+			calibrationCache = new CalibrationCache(Paths.get(line.getOptionValue("calibration")));
+		} else {
+			calibrationCache = new CalibrationCache();
+		}
+		calibrationCache.setRecalibrate(line.hasOption("recalibrate"));
+		return calibrationCache;
+	}
+
+	/**
+	 * Stops the run when the JVM is asked to shut down (e.g., on Ctrl-C), and
+	 * gives it a moment to output the best solution found so far
+	 */
+	private static void stopOnShutdown(final TerminationController termination) {
+		final Thread mainThread = Thread.currentThread();
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				termination.requestStop();
+				try {
+					mainThread.join(1000L);
+				} catch (InterruptedException e) {
+					// shut down anyway
 				}
 			}
-		} else {
-			/* If instanceFileName is set, we load just this one instance */
-			try {
-				instances.add(new PFSPInstance(path + instanceFileName));
-			} catch (Exception e) {
-				System.err.println("Failed to load instance: " + instanceFileName);
-				// e.printStackTrace();
+		});
+	}
+
+	/**
+	 * Returns the maximum warm-up time in milliseconds (the option is in
+	 * seconds)
+	 */
+	private static long parseWarmupTime(CommandLine line) throws ParseException {
+		long warmupTime = Long.parseLong(line.getOptionValue("warmup"));
+		if (warmupTime < 0) {
+			throw new ParseException("warmup should not be negative");
+		}
+		return 1000L * warmupTime;
+	}
+
+	/**
+	 * Returns the number of threads to use for the benchmarks (optional)
+	 */
+	private static int parseThreads(CommandLine line) throws ParseException {
+		if (!line.hasOption("threads")) {
+			return 1;
+		}
+		int threads = Integer.parseInt(line.getOptionValue("threads"));
+		if (threads < 1) {
+			throw new ParseException("threads should be at least 1");
+		}
+		return threads;
+	}
+
+	/**
+	 * Returns the options of the command line
+	 */
+	static Options createOptions() {
+		Options options = new Options();
+		// GENERAL args
+		options.addOption("help", false, "Display this help");
+		options.addOption("run", false, "Run a choice of algorithm on a single instance");
+		options.addOption("sqt", false,
+				"Perform and log a solution quality trace on the 6 instances");
+		options.addOption("bench", false, "Perform the benchmarks of the two algorithms");
+		options.addOption("daemon", true,
+				"Answer -run requests (one per line) on the given local port, see irace/flowshop-client");
+		options.addOption("batch", true,
+				"Run every line (with the options of -run) of the given manifest, on -threads workers");
+		options.addOption("format", true, "Output format of batch: csv (default) or json");
+		options.addOption("tune", true,
+				"Tune the parameters of the given file (irace syntax, see irace/parameters.txt) by racing, on -threads workers");
+		options.addOption("budget", true, "Maximum number of experiments of tune (default: 1000)");
+		options.addOption("convert", false,
+				"Write the binary version of an instance (or of all instances in instances/)");
+		options.addOption("results", true,
+				"Complete path pointing to folder where results will be written");
+		options.addOption("sls", true, "Choice of SLS algorithm: sa, ig, or ii (iterative improvement only)");
+		options.addOption("instance", true, "Instance to load");
+		options.addOption("instances", true,
+				"Folder (or manifest file) with the instances for sqt and bench (default: instances/), or tune (default: irace/instances/)");
+		options.addOption("time", true, "Maximum runtime");
+		options.addOption("evaluations", true,
+				"Budget in objective evaluations (instead of time) per run");
+		options.addOption("clock", true,
+				"Clock for the maximum runtime: wall (default) or cpu (thread CPU time)");
+		options.addOption("recalibrate", false,
+				"Measure the VND run time for the maximum runtime again, instead of using the stored one");
+		options.addOption("calibration", true,
+				"File with the stored VND run times (default: ~/.pfsp-sls/calibration.properties)");
+		options.addOption("best_known", true,
+				"File with the best known weighted tardiness per instance, for the RPD and QRTDs of sqt and bench (default: none, only the statistics are reported)");
+		options.addOption("targets", true,
+				"Quality targets of the QRTDs, as comma-separated RPD (%) from the best known (default: 0,0.5,1,2)");
+		options.addOption("warmup", true,
+				"Maximum JVM warm-up time in seconds before sqt, bench, batch, daemon and tune, 0 to skip (default: 60)");
+		options.addOption("seed", true, "Seed for the random generator (default: random)");
+		options.addOption("threads", true,
+				"Number of runs to execute in parallel for sqt, bench and batch (default: 1), or tune (default: number of cores), or of connections for daemon (default: number of cores)");
+		// SA args
+		options.addOption("sa_init", true, "SA: Initialization method");
+		options.addOption("sa_t", true, "SA: Initial starting temperature");
+		options.addOption("sa_steps", true, "SA: Multiplier for the search steps per temperature");
+		options.addOption("sa_cooling", true, "SA: Modifier that dictates the cooling behaviour");
+		options.addOption("sa_neighborhood", true,
+				"SA: Neighborhood of the random moves (transpose, exchange, insert), or a weighted mix like insert:3,exchange:1 (default: insert)");
+		// IG args
+		options.addOption("ig_t", true, "IG: Multiplier for the initial starting temperature");
+		options.addOption("ig_d", true, "IG: destruction parameter");
+		options.addOption("ig_islands", true,
+				"IG: Number of islands (threads) to run in parallel (default: 1)");
+		options.addOption("ig_migration", true,
+				"IG: Iterations without improvement before an island restarts from the shared best");
+		// II args
+		options.addOption("ii_pivot", true, "II: Pivot rule: first or best (default)");
+		options.addOption("ii_neighborhood", true,
+				"II: Neighborhood: transpose, exchange or insert (default)");
+		options.addOption("ii_init", true, "II: Initialization method: random or slack (default)");
+		options.addOption("ii_threads", true,
+				"II: Number of threads of the best-improvement neighborhood scan (default: 1)");
+		return options;
+	}
+
+	/**
+	 * Returns the aggregator for the results of sqt and bench, with the best
+	 * known values of the best known file (optional)
+	 */
+	private static ResultAggregator createResultAggregator(CommandLine line,
+			InstanceCatalog catalog) throws IOException, ParseException {
+		if (line.hasOption("best_known")) {
+			Path bestKnownFile = Paths.get(line.getOptionValue("best_known"));
+			if (!Files.exists(bestKnownFile)) {
+				throw new ParseException("best_known file not found: " + bestKnownFile);
 			}
+			catalog.joinBestKnown(bestKnownFile);
 		}
+		ResultAggregator resultAggregator = new ResultAggregator(catalog.getBestKnown());
+		if (line.hasOption("targets")) {
+			String[] values = line.getOptionValue("targets").split(",");
+			double[] targets = new double[values.length];
+			for (int i = 0; i < values.length; i++) {
+				targets[i] = Double.parseDouble(values[i].trim());
+				if (targets[i] < 0) {
+					throw new ParseException("targets should not be negative");
+				}
+			}
+			resultAggregator.setQualityTargets(targets);
+		}
+		return resultAggregator;
+	}
+
+	/**
+	 * Returns the catalog of the instances folder or manifest (optional)
+	 */
+	private static InstanceCatalog createCatalog(CommandLine line) throws IOException {
+		if (line.hasOption("instances")) {
+			return InstanceCatalog.from(Paths.get(line.getOptionValue("instances")));
+		}
+		return InstanceCatalog.fromDirectory(Paths.get("instances/"));
+	}
+
+	/**
+	 * Load all instances in a given folder (see
+	 * {@link InstanceCatalog#fromDirectory(Path)}), in parallel
+	 *
+	 * @throws RuntimeException
+	 *             listing the instances that failed to load
+	 */
+	public static List<PFSPInstance> initializeInstances(String path) throws IOException {
+		return InstanceCatalog.fromDirectory(Paths.get(path)).loadAll(
+				Runtime.getRuntime().availableProcessors());
+	}
 
+	/**
+	 * Load an instance by its filename and path
+	 */
+	public static List<PFSPInstance> initializeInstances(String path, String instanceFileName)
+			throws Exception {
+		if (instanceFileName == null) {
+			return initializeInstances(path);
+		}
+		List<PFSPInstance> instances = new ArrayList<PFSPInstance>();
+		instances.add(new PFSPInstance(Paths.get(path, instanceFileName).toString()));
 		return instances;
 	}
 
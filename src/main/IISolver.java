@@ -2,9 +2,13 @@ package main;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import main.NeighborhoodGenerator.NeighborhoodMethod;
 import main.PFSPInstance.InitializationMethod;
+import util.FastRandom;
+import util.Permutation;
 
 /**
  * 
@@ -41,16 +45,93 @@ public class IISolver {
 	};
 
 	private PFSPInstance instance;
+	private MoveEvaluator evaluator;
+	/* Used for the random initial solutions */
+	private Random rnd = new FastRandom();
+	/* Stops the local searches if not null */
+	private TerminationController termination;
+
+	/*
+	 * Smaller neighborhoods are scanned sequentially, even with a worker pool:
+	 * splitting them costs more than it saves
+	 */
+	static final int MINIMUM_PARALLEL_NEIGHBORHOOD_SIZE = 1000;
+
+	/* Parallel best-improvement: worker pool and evaluator per worker */
+	private ForkJoinPool forkJoinPool;
+	private ThreadLocal<MoveEvaluator> workerEvaluators;
 
 	public IISolver() {
 	}
 	
 	public IISolver(PFSPInstance instance){
-		this.instance = instance;
+		setInstance(instance);
+	}
+
+	public void setInstance(final PFSPInstance instance) {
+		if (this.instance != instance) {
+			this.instance = instance;
+			this.evaluator = new MoveEvaluator(instance);
+			this.workerEvaluators = new ThreadLocal<MoveEvaluator>() {
+				@Override
+				protected MoveEvaluator initialValue() {
+					return new MoveEvaluator(instance);
+				}
+			};
+		}
+	}
+
+	/**
+	 * Sets the counter that counts the evaluations of this solver (including
+	 * those of the parallel best-improvement scan)
+	 */
+	public void setEvaluationCounter(EvaluationCounter evaluationCounter) {
+		evaluator.setEvaluationCounter(evaluationCounter);
 	}
 
-	public void setInstance(PFSPInstance instance) {
-		this.instance = instance;
+	/**
+	 * Sets the controller that stops the local searches when the budget of a
+	 * run is used up (null, the default, runs them until a local optimum),
+	 * and counts their evaluations with the counter of the controller. A
+	 * stopped local search returns the best solution found so far.
+	 */
+	public void setTermination(TerminationController termination) {
+		this.termination = termination;
+		if (termination != null) {
+			setEvaluationCounter(termination.getEvaluationCounter());
+		}
+	}
+
+	/**
+	 * Returns true if the budget of the run is used up (see
+	 * {@link #setTermination(TerminationController)})
+	 */
+	private boolean shouldTerminate() {
+		return termination != null && termination.shouldTerminate();
+	}
+
+	/**
+	 * Sets the random generator used for random initial solutions
+	 */
+	public void setRandom(Random rnd) {
+		this.rnd = rnd;
+	}
+
+	/**
+	 * Sets the number of threads used to scan the neighborhood in the
+	 * best-improvement pivot. With 1 (the default), the neighborhood is
+	 * scanned sequentially, as are neighborhoods of less than
+	 * {@value #MINIMUM_PARALLEL_NEIGHBORHOOD_SIZE} moves (e.g., transpose).
+	 * The selected moves are the same either way.
+	 */
+	public void setParallelism(int parallelism) {
+		if (forkJoinPool != null) {
+			forkJoinPool.shutdown();
+			forkJoinPool = null;
+		}
+		if (parallelism > 1) {
+			forkJoinPool = new ForkJoinPool(parallelism);
+		}
 	}
 
 	/* START - Iterative improvement section */
@@ -69,7 +150,7 @@ public class IISolver {
 			InitializationMethod initializationMethod) {
 		Solution initialSolution = new Solution();
 		initialSolution.jobsOrder = instance
-				.getInitialSolution(initializationMethod);
+				.getInitialSolution(initializationMethod, rnd);
 		initialSolution.completionTimes = instance
 				.calculateCompletionTimes(initialSolution.jobsOrder);
 		initialSolution.weightedTardiness = instance
@@ -103,7 +184,7 @@ public class IISolver {
 			NeighborhoodMethod neighborhoodMethod) {
 		Solution solution = initialSolution;
 		boolean improvement = true;
-		while (improvement) {
+		while (improvement && !shouldTerminate()) {
 			improvement = false;
 			Solution improvingSolution = findBestImprovingNeighborSolution(
 					solution, neighborhoodMethod);
@@ -126,29 +207,119 @@ public class IISolver {
 	 */
 	private Solution findBestImprovingNeighborSolution(
 			Solution currentSolution, NeighborhoodMethod neighborhoodMethod) {
-		Solution bestImprovingNeighborSolution = new Solution();
+		if (forkJoinPool != null
+				&& NeighborhoodScanTask.getNumberOfMoves(neighborhoodMethod,
+						currentSolution.jobsOrder.size()) >= MINIMUM_PARALLEL_NEIGHBORHOOD_SIZE) {
+			return findBestImprovingNeighborSolutionInParallel(currentSolution,
+					neighborhoodMethod);
+		}
+		if (neighborhoodMethod == NeighborhoodMethod.INSERT) {
+			return findBestImprovingInsertNeighborSolution(currentSolution);
+		}
+		Permutation bestJobsOrder = new Permutation(currentSolution.jobsOrder);
 		int bestWeightedTardinessSoFar = currentSolution.weightedTardiness;
 		boolean improvementFound = false;
+
+		evaluator.load(currentSolution.jobsOrder);
+		Permutation jobsOrder = evaluator.getJobsOrder();
 		NeighborhoodGenerator neighborhoodGenerator = new NeighborhoodGenerator(
-				currentSolution.jobsOrder, neighborhoodMethod);
+				jobsOrder, neighborhoodMethod);
 
-		while (neighborhoodGenerator.hasNext()) {
-			List<Integer> jobsOrder = neighborhoodGenerator.getNext();
-			int[][] completionTimes = instance.reCalculateCompletionTimes(
-					jobsOrder, currentSolution.completionTimes,
-					neighborhoodGenerator.getLastIndexChanged());
-			int weightedTardiness = instance
-					.calculateWeightedTardiness(completionTimes);
+		while (!shouldTerminate() && neighborhoodGenerator.nextMove()) {
+			neighborhoodGenerator.applyMove(jobsOrder);
+			int weightedTardiness = evaluator.evaluate(
+					neighborhoodGenerator.getLastIndexChanged(), neighborhoodGenerator
+							.getLastMove().getHighestIndex(), bestWeightedTardinessSoFar);
 
 			if (weightedTardiness < bestWeightedTardinessSoFar) {
 				improvementFound = true;
 				bestWeightedTardinessSoFar = weightedTardiness;
-				bestImprovingNeighborSolution.jobsOrder = jobsOrder;
-				bestImprovingNeighborSolution.completionTimes = completionTimes;
-				bestImprovingNeighborSolution.weightedTardiness = weightedTardiness;
+				bestJobsOrder.copyFrom(jobsOrder);
 			}
+			neighborhoodGenerator.undoMove(jobsOrder);
 		}
 		if (improvementFound) {
+			Solution bestImprovingNeighborSolution = new Solution();
+			evaluator.load(bestJobsOrder);
+			evaluator.store(bestImprovingNeighborSolution);
+			return bestImprovingNeighborSolution;
+		}
+		return null;
+	}
+
+	/**
+	 * Parallel version of
+	 * {@link #findBestImprovingNeighborSolution(Solution, NeighborhoodMethod)}
+	 * , splitting the neighborhood over the fork/join pool.
+	 * 
+	 * @see NeighborhoodScanTask
+	 */
+	private Solution findBestImprovingNeighborSolutionInParallel(Solution currentSolution,
+			NeighborhoodMethod neighborhoodMethod) {
+		int numberOfOuterIndices = NeighborhoodScanTask.getNumberOfOuterIndices(
+				neighborhoodMethod, currentSolution.jobsOrder.size());
+		/* A few tasks per worker, so work stealing can balance the load */
+		int threshold = Math.max(1, numberOfOuterIndices / (forkJoinPool.getParallelism() * 8));
+
+		NeighborhoodScanTask.BestMove bestMove = forkJoinPool.invoke(new NeighborhoodScanTask(
+				workerEvaluators, currentSolution.jobsOrder, neighborhoodMethod,
+				currentSolution.weightedTardiness, 0, numberOfOuterIndices, threshold));
+		evaluator.getEvaluationCounter().add(bestMove.evaluations);
+		if (bestMove.i != -1) {
+			Solution bestImprovingNeighborSolution = new Solution();
+			evaluator.load(currentSolution.jobsOrder);
+			evaluator.update(bestMove.apply(evaluator.getJobsOrder(), neighborhoodMethod));
+			evaluator.store(bestImprovingNeighborSolution);
+			return bestImprovingNeighborSolution;
+		}
+		return null;
+	}
+
+	/**
+	 * Return the best improving solution over a current solution in the
+	 * insert neighborhood, or null if there is none. Instead of evaluating
+	 * every (i, j) move separately, the job at i is removed once, and all of
+	 * its insertion positions are scored reusing the rows before each
+	 * position. The moves are visited in the same order as
+	 * {@link util.InsertListPermuter} does, so ties are broken the same way.
+	 * 
+	 * @param currentSolution
+	 * @return the best improving solution, or null if none is found
+	 */
+	private Solution findBestImprovingInsertNeighborSolution(Solution currentSolution) {
+		int bestWeightedTardinessSoFar = currentSolution.weightedTardiness;
+		int bestFrom = -1;
+		int bestTo = -1;
+		boolean terminated = false;
+
+		evaluator.load(currentSolution.jobsOrder);
+		int numberOfJobs = evaluator.getJobsOrder().size();
+		for (int i = 0; i < numberOfJobs && !terminated; i++) {
+			int jobId = evaluator.remove(i);
+			for (int j = 0; j < numberOfJobs; j++) {
+				/* Skip the identity, and the duplicate of transposing (j, i) */
+				if (j == i || j == i + 1) {
+					continue;
+				}
+				if (shouldTerminate()) {
+					terminated = true;
+					break;
+				}
+				int weightedTardiness = evaluator.evaluateInsertion(jobId, j,
+						bestWeightedTardinessSoFar);
+				if (weightedTardiness < bestWeightedTardinessSoFar) {
+					bestWeightedTardinessSoFar = weightedTardiness;
+					bestFrom = i;
+					bestTo = j;
+				}
+			}
+			evaluator.insert(jobId, i);
+		}
+		if (bestFrom != -1) {
+			Solution bestImprovingNeighborSolution = new Solution();
+			evaluator.getJobsOrder().move(bestFrom, bestTo);
+			evaluator.update(Math.min(bestFrom, bestTo));
+			evaluator.store(bestImprovingNeighborSolution);
 			return bestImprovingNeighborSolution;
 		}
 		return null;
@@ -166,32 +337,35 @@ public class IISolver {
 			NeighborhoodMethod neighborhoodMethod) {
 		Solution solution = initialSolution;
 
+		evaluator.load(initialSolution.jobsOrder);
+		Permutation jobsOrder = evaluator.getJobsOrder();
 		NeighborhoodGenerator neighborhoodGenerator = new NeighborhoodGenerator(
-				initialSolution.jobsOrder, neighborhoodMethod);
+				jobsOrder, neighborhoodMethod);
 
 		boolean improvement = true;
-		while (improvement) {
+		boolean terminated = false;
+		while (improvement && !terminated) {
 			improvement = false;
 			neighborhoodGenerator.resetCounters();
-			while (neighborhoodGenerator.hasNext()) {
-				List<Integer> jobsOrder = neighborhoodGenerator.getNext();
-				int[][] completionTimes = instance.reCalculateCompletionTimes(
-						jobsOrder, solution.completionTimes,
-						neighborhoodGenerator.getLastIndexChanged());
-				int weightedTardiness = instance
-						.calculateWeightedTardiness(completionTimes);
-
-				if (weightedTardiness < solution.weightedTardiness) {
-					improvement = true;
-
-					solution.jobsOrder = jobsOrder;
-					solution.completionTimes = completionTimes;
-					solution.weightedTardiness = weightedTardiness;
+			while (neighborhoodGenerator.nextMove()) {
+				if (shouldTerminate()) {
+					terminated = true;
+					break;
+				}
+				neighborhoodGenerator.applyMove(jobsOrder);
+				int weightedTardiness = evaluator.evaluate(
+						neighborhoodGenerator.getLastIndexChanged(), neighborhoodGenerator
+								.getLastMove().getHighestIndex(), evaluator.getWeightedTardiness());
 
-					neighborhoodGenerator.setInitialNeighborhood(jobsOrder);
+				if (weightedTardiness < evaluator.getWeightedTardiness()) {
+					improvement = true;
+					evaluator.commit();
+				} else {
+					neighborhoodGenerator.undoMove(jobsOrder);
 				}
 			}
 		}
+		evaluator.store(solution);
 		return solution;
 	}
 
@@ -205,7 +379,7 @@ public class IISolver {
 		/* Construct initial solution */
 		Solution initialSolution = new Solution();
 		initialSolution.jobsOrder = instance
-				.getInitialSolution(initializationMethod);
+				.getInitialSolution(initializationMethod, rnd);
 		initialSolution.completionTimes = instance
 				.calculateCompletionTimes(initialSolution.jobsOrder);
 		initialSolution.weightedTardiness = instance
@@ -255,24 +429,25 @@ public class IISolver {
 		Solution firstImprovingNeighborSolution = null;
 		boolean improvementFound = false;
 
+		evaluator.load(currentSolution.jobsOrder);
+		Permutation jobsOrder = evaluator.getJobsOrder();
 		NeighborhoodGenerator neighborhoodGenerator = new NeighborhoodGenerator(
-				currentSolution.jobsOrder, neighborhoodMethod);
+				jobsOrder, neighborhoodMethod);
 
-		while (!improvementFound && neighborhoodGenerator.hasNext()) {
-			List<Integer> jobsOrder = neighborhoodGenerator.getNext();
-			int[][] completionTimes = instance.reCalculateCompletionTimes(
-					jobsOrder, currentSolution.completionTimes,
-					neighborhoodGenerator.getLastIndexChanged());
-			int weightedTardiness = instance
-					.calculateWeightedTardiness(completionTimes);
+		while (!improvementFound && !shouldTerminate() && neighborhoodGenerator.nextMove()) {
+			neighborhoodGenerator.applyMove(jobsOrder);
+			int weightedTardiness = evaluator.evaluate(
+					neighborhoodGenerator.getLastIndexChanged(), neighborhoodGenerator
+							.getLastMove().getHighestIndex(), currentSolution.weightedTardiness);
 
 			if (weightedTardiness < currentSolution.weightedTardiness) {
 				improvementFound = true;
 
+				evaluator.commit();
 				firstImprovingNeighborSolution = new Solution();
-				firstImprovingNeighborSolution.jobsOrder = jobsOrder;
-				firstImprovingNeighborSolution.completionTimes = completionTimes;
-				firstImprovingNeighborSolution.weightedTardiness = weightedTardiness;
+				evaluator.store(firstImprovingNeighborSolution);
+			} else {
+				neighborhoodGenerator.undoMove(jobsOrder);
 			}
 		}
 		return firstImprovingNeighborSolution;
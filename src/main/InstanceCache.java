@@ -0,0 +1,36 @@
+package main;
+
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Instances loaded by the runs of a long-lived JVM (the daemon and batch
+ * modes), by the absolute path of their file, so every instance is parsed
+ * only once. The instances are held like those of an {@link InstanceCatalog}
+ * (see {@link InstanceCatalog.Entry#load()}). Thread-safe.
+ *
+ * @author Tom Jaspers
+ *
+ */
+class InstanceCache {
+
+	private final ConcurrentMap<Path, InstanceCatalog.Entry> entries = new ConcurrentHashMap<Path, InstanceCatalog.Entry>();
+
+	/**
+	 * Returns the instance of a file, which is loaded if it isn't in memory
+	 */
+	PFSPInstance get(Path path) throws Exception {
+		path = path.toAbsolutePath().normalize();
+		InstanceCatalog.Entry entry = entries.get(path);
+		if (entry == null) {
+			InstanceCatalog.Entry newEntry = new InstanceCatalog.Entry(path.getFileName()
+					.toString(), path);
+			entry = entries.putIfAbsent(path, newEntry);
+			if (entry == null) {
+				entry = newEntry;
+			}
+		}
+		return entry.load();
+	}
+}
@@ -0,0 +1,386 @@
+package main;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Catalog of the instance files of a directory or of a manifest, optionally
+ * joined with the best known weighted tardiness of each instance (see
+ * {@link #joinBestKnown(Path)}).
+ *
+ * The catalog only holds the paths; the instances are loaded on demand, either
+ * one at a time ({@link Entry#load()}, or through the lazy list of
+ * {@link #getInstances()}), or all at once on several threads
+ * ({@link #loadAll(int)}). A loaded instance is kept through a soft reference,
+ * so it is only loaded again once the memory was needed for something else.
+ *
+ * @author Tom Jaspers
+ *
+ */
+public class InstanceCatalog {
+
+	/**
+	 * Name of the file with the best known weighted tardiness per instance:
+	 * one "name value" pair per line (or "jobs_machines number value", as in
+	 * irace/instances), lines starting with # are ignored. It is only read
+	 * when given explicitly (see {@link #joinBestKnown(Path)}): a file that
+	 * merely sits next to the instances may well be for other instances.
+	 */
+	public static final String BEST_KNOWN_FILE = "best_known.txt";
+
+	/**
+	 * An instance file of the catalog
+	 */
+	public static class Entry {
+		private final String name;
+		private final Path path;
+		private int bestKnown = -1;
+		private int[] dimensions;
+		private SoftReference<PFSPInstance> instance = new SoftReference<PFSPInstance>(null);
+
+		Entry(String name, Path path) {
+			this.name = name;
+			this.path = path;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public Path getPath() {
+			return path;
+		}
+
+		public boolean hasBestKnown() {
+			return bestKnown >= 0;
+		}
+
+		/**
+		 * Returns the best known weighted tardiness, or -1 if it is unknown
+		 */
+		public int getBestKnown() {
+			return bestKnown;
+		}
+
+		/**
+		 * Returns the number of jobs times the number of machines, read from
+		 * the header of the file (see {@link PFSPInstance#readDimensions(Path)}),
+		 * so the instance doesn't have to be loaded for it
+		 */
+		public synchronized long getSize() throws IOException {
+			if (dimensions == null) {
+				dimensions = PFSPInstance.readDimensions(path);
+			}
+			return (long) dimensions[0] * dimensions[1];
+		}
+
+		/**
+		 * Returns the instance, which is loaded if it isn't (any longer) in
+		 * memory
+		 */
+		public synchronized PFSPInstance load() throws Exception {
+			PFSPInstance loaded = instance.get();
+			if (loaded == null) {
+				loaded = new PFSPInstance(path.toString());
+				instance = new SoftReference<PFSPInstance>(loaded);
+			}
+			return loaded;
+		}
+	}
+
+	/**
+	 * Orders names with the numbers in them compared by value (e.g., 50x20_2
+	 * before 50x20_10 before 100x20_1)
+	 */
+	static final Comparator<String> NATURAL_ORDER = new Comparator<String>() {
+		@Override
+		public int compare(String a, String b) {
+			int i = 0, j = 0;
+			while (i < a.length() && j < b.length()) {
+				char ca = a.charAt(i);
+				char cb = b.charAt(j);
+				if (Character.isDigit(ca) && Character.isDigit(cb)) {
+					int endA = i, endB = j;
+					while (endA < a.length() && Character.isDigit(a.charAt(endA))) {
+						endA++;
+					}
+					while (endB < b.length() && Character.isDigit(b.charAt(endB))) {
+						endB++;
+					}
+					int result = compareNumbers(a.substring(i, endA), b.substring(j, endB));
+					if (result != 0) {
+						return result;
+					}
+					i = endA;
+					j = endB;
+				} else {
+					if (ca != cb) {
+						return Character.compare(ca, cb);
+					}
+					i++;
+					j++;
+				}
+			}
+			return Integer.compare(a.length() - i, b.length() - j);
+		}
+
+		private int compareNumbers(String a, String b) {
+			String strippedA = a.replaceFirst("^0+(?=.)", "");
+			String strippedB = b.replaceFirst("^0+(?=.)", "");
+			if (strippedA.length() != strippedB.length()) {
+				return Integer.compare(strippedA.length(), strippedB.length());
+			}
+			return strippedA.compareTo(strippedB);
+		}
+	};
+
+	private final List<Entry> entries;
+	private final Map<String, Entry> entriesByName = new LinkedHashMap<String, Entry>();
+
+	private InstanceCatalog(List<Entry> entries) {
+		this.entries = Collections.unmodifiableList(entries);
+		for (Entry entry : entries) {
+			if (entriesByName.put(entry.name, entry) != null) {
+				throw new RuntimeException("Duplicate instance name: " + entry.name);
+			}
+		}
+	}
+
+	/**
+	 * Creates a catalog of all instance files in a directory, ordered by name
+	 * (see {@link #NATURAL_ORDER}). Hidden files, temporary files and the
+	 * {@value #BEST_KNOWN_FILE} are skipped. An instance of which only the
+	 * binary version is present is listed under the name without the
+	 * {@value PFSPInstance#BINARY_EXTENSION}.
+	 */
+	public static InstanceCatalog fromDirectory(Path directory) throws IOException {
+		Set<String> fileNames = new HashSet<String>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path file : stream) {
+				if (Files.isRegularFile(file)) {
+					fileNames.add(file.getFileName().toString());
+				}
+			}
+		}
+
+		List<Entry> entries = new ArrayList<Entry>();
+		for (String fileName : fileNames) {
+			if (fileName.startsWith(".") || fileName.endsWith(".tmp")
+					|| fileName.endsWith(".lock") || fileName.equals(BEST_KNOWN_FILE)) {
+				continue;
+			}
+			if (fileName.endsWith(PFSPInstance.BINARY_EXTENSION)) {
+				String name = fileName.substring(0, fileName.length()
+						- PFSPInstance.BINARY_EXTENSION.length());
+				if (!fileNames.contains(name)) {
+					entries.add(new Entry(name, directory.resolve(fileName)));
+				}
+			} else {
+				entries.add(new Entry(fileName, directory.resolve(fileName)));
+			}
+		}
+		Collections.sort(entries, new Comparator<Entry>() {
+			@Override
+			public int compare(Entry a, Entry b) {
+				return NATURAL_ORDER.compare(a.name, b.name);
+			}
+		});
+
+		return new InstanceCatalog(entries);
+	}
+
+	/**
+	 * Creates a catalog of the instance files listed in a manifest: one path
+	 * per line (relative to the directory of the manifest), in the order of
+	 * the catalog. Empty lines and lines starting with # are ignored.
+	 */
+	public static InstanceCatalog fromManifest(Path manifest) throws IOException {
+		Path directory = manifest.toAbsolutePath().getParent();
+		List<Entry> entries = new ArrayList<Entry>();
+		int lineNumber = 0;
+		for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+			lineNumber++;
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			Path file = directory.resolve(line);
+			if (!Files.isRegularFile(file)) {
+				throw new IOException(manifest + ":" + lineNumber + ": no such instance file: "
+						+ line);
+			}
+			entries.add(new Entry(file.getFileName().toString(), file));
+		}
+
+		return new InstanceCatalog(entries);
+	}
+
+	/**
+	 * Creates a catalog of a directory, or of a manifest if the path is a
+	 * file
+	 */
+	public static InstanceCatalog from(Path path) throws IOException {
+		if (Files.isDirectory(path)) {
+			return fromDirectory(path);
+		}
+		return fromManifest(path);
+	}
+
+	/**
+	 * Sets the best known weighted tardiness of the instances listed in a
+	 * file (see {@link #BEST_KNOWN_FILE}). Instances that are not in the
+	 * catalog are ignored.
+	 */
+	public void joinBestKnown(Path bestKnownFile) throws IOException {
+		int lineNumber = 0;
+		for (String line : Files.readAllLines(bestKnownFile, StandardCharsets.UTF_8)) {
+			lineNumber++;
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] fields = line.split("\\s+");
+			String name = fields[0];
+			int bestKnown;
+			try {
+				if (fields.length == 3) {
+					// "50_20 01 value", as in irace/instances, is instance 50x20_1
+					name = fields[0].replace('_', 'x') + "_" + Integer.parseInt(fields[1]);
+				}
+				bestKnown = (fields.length == 2 || fields.length == 3) ? Integer
+						.parseInt(fields[fields.length - 1]) : -1;
+			} catch (NumberFormatException e) {
+				bestKnown = -1;
+			}
+			if (bestKnown < 0) {
+				throw new IOException(bestKnownFile + ":" + lineNumber
+						+ ": expected \"name value\" or \"jobs_machines number value\", got: "
+						+ line);
+			}
+			Entry entry = entriesByName.get(name);
+			if (entry != null) {
+				entry.bestKnown = bestKnown;
+			}
+		}
+	}
+
+	/**
+	 * Returns the best known weighted tardiness per instance name, of the
+	 * instances that have one
+	 */
+	public Map<String, Integer> getBestKnown() {
+		Map<String, Integer> bestKnown = new LinkedHashMap<String, Integer>();
+		for (Entry entry : entries) {
+			if (entry.hasBestKnown()) {
+				bestKnown.put(entry.name, entry.bestKnown);
+			}
+		}
+		return bestKnown;
+	}
+
+	public List<Entry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Returns the entry of an instance, or null if it is not in the catalog
+	 */
+	public Entry get(String name) {
+		return entriesByName.get(name);
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns a list view of the instances, which loads an instance when it
+	 * is requested (see {@link Entry#load()})
+	 *
+	 * @throws RuntimeException
+	 *             (from the list) if an instance fails to load
+	 */
+	public List<PFSPInstance> getInstances() {
+		return new AbstractList<PFSPInstance>() {
+			@Override
+			public PFSPInstance get(int index) {
+				Entry entry = entries.get(index);
+				try {
+					return entry.load();
+				} catch (Exception e) {
+					throw new RuntimeException("Failed to load instance " + entry.name + ": "
+							+ e.getMessage(), e);
+				}
+			}
+
+			@Override
+			public int size() {
+				return entries.size();
+			}
+		};
+	}
+
+	/**
+	 * Loads all instances, on the given number of threads, and returns them
+	 * in the order of the catalog
+	 *
+	 * @throws RuntimeException
+	 *             listing every instance that failed to load
+	 */
+	public List<PFSPInstance> loadAll(int threads) {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1,
+				Math.min(threads, entries.size())));
+		List<PFSPInstance> instances = new ArrayList<PFSPInstance>(entries.size());
+		StringBuilder errors = new StringBuilder();
+		Throwable firstError = null;
+		try {
+			List<Future<PFSPInstance>> futures = new ArrayList<Future<PFSPInstance>>();
+			for (final Entry entry : entries) {
+				futures.add(executor.submit(new Callable<PFSPInstance>() {
+					@Override
+					public PFSPInstance call() throws Exception {
+						return entry.load();
+					}
+				}));
+			}
+			for (int i = 0; i < entries.size(); i++) {
+				try {
+					instances.add(futures.get(i).get());
+				} catch (ExecutionException e) {
+					if (firstError == null) {
+						firstError = e.getCause();
+					}
+					errors.append("\n  ").append(entries.get(i).name).append(": ")
+							.append(e.getCause().getMessage());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while loading the instances", e);
+		} finally {
+			executor.shutdownNow();
+		}
+		if (firstError != null) {
+			throw new RuntimeException("Failed to load instances:" + errors, firstError);
+		}
+		return instances;
+	}
+}
@@ -0,0 +1,359 @@
+package main;
+
+import util.Permutation;
+
+/**
+ * Evaluates moves on a working permutation in place, using preallocated
+ * completion times buffers instead of allocating a new matrix for every
+ * neighbor.
+ *
+ * The evaluator holds the committed state (the working permutation, its
+ * completion times and weighted tardiness) and a candidate buffer. A move is
+ * evaluated by applying it to {@link #getJobsOrder()}, and calling
+ * {@link #evaluate(int)} with the lowest index that changed. Only the rows from
+ * that index onwards are recalculated, into the candidate buffer. The move is
+ * then either kept with {@link #commit()}, which copies the changed rows into
+ * the committed buffer, or reverted by undoing the move on the permutation
+ * (the committed buffer was never touched, so nothing else needs undoing).
+ *
+ * When the highest changed index is known as well, as for the moves of the
+ * neighborhoods, {@link #evaluate(int, int, int)} stops recalculating once the
+ * rows after the move converge to the committed ones; the rest of the
+ * committed rows are then reused, and only their cumulative weighted
+ * tardiness is shifted on commit.
+ *
+ * @author Tom Jaspers
+ *
+ */
+public class MoveEvaluator {
+	/**
+	 * Returned by the bounded evaluations when the weighted tardiness is not
+	 * lower than the cutoff (i.e., the move is not worth considering)
+	 */
+	public static final int WORSE_THAN_CUTOFF = Integer.MAX_VALUE;
+
+	private final PFSPInstance instance;
+
+	private final Permutation jobsOrder;
+	private final int rowStride;
+	private final int[] completionTimes;
+	private final int[] candidateCompletionTimes;
+	private int weightedTardiness;
+
+	private int candidateStartIndex;
+	private int candidateEndIndex;
+	/* Difference in cumulative weighted tardiness of the converged rows */
+	private int candidateDelta;
+	private int candidateWeightedTardiness;
+
+	private final int[] insertionRowBuffer;
+	private int bestInsertionWeightedTardiness;
+
+	/* Counts the evaluations, shared with the other evaluators of a run */
+	private EvaluationCounter evaluationCounter = new EvaluationCounter();
+
+	/* Statistics on the rows calculated, skipped and reused by evaluations */
+	private long rowsCalculated;
+	private long rowsSkipped;
+	private long rowsConverged;
+
+	public MoveEvaluator(PFSPInstance instance) {
+		this.instance = instance;
+
+		this.jobsOrder = new Permutation(instance.getNumberOfJobs());
+		this.rowStride = instance.getRowStride();
+		this.completionTimes = instance.createCompletionTimes();
+		this.candidateCompletionTimes = instance.createCompletionTimes();
+		this.insertionRowBuffer = new int[rowStride];
+	}
+
+	/**
+	 * Loads a (possibly partial) jobs order as the committed state, and
+	 * calculates its completion times from scratch
+	 */
+	public void load(Permutation newJobsOrder) {
+		jobsOrder.copyFrom(newJobsOrder);
+		update(0);
+	}
+
+	/**
+	 * Recalculates the committed state after the working permutation was
+	 * changed from startIndex onwards (e.g., to apply a move that was already
+	 * evaluated). This is bookkeeping, so it is not counted as an evaluation.
+	 */
+	public void update(int startIndex) {
+		calculate(startIndex, Integer.MAX_VALUE);
+		commit();
+	}
+
+	/**
+	 * Calculates the weighted tardiness of the working permutation, assuming
+	 * it only differs from the committed state from startIndex onwards.
+	 *
+	 * @param startIndex
+	 *            the lowest index that was changed by the move
+	 * @return the weighted tardiness of the working permutation
+	 */
+	public int evaluate(int startIndex) {
+		return evaluate(startIndex, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Bounded version of {@link #evaluate(int)}: stops recalculating as soon
+	 * as the weighted tardiness reaches the cutoff, and then returns
+	 * {@link #WORSE_THAN_CUTOFF}. A move evaluated as such can not be
+	 * committed.
+	 * 
+	 * @param startIndex
+	 *            the lowest index that was changed by the move
+	 * @param cutoff
+	 *            the weighted tardiness the move has to be (strictly) lower
+	 *            than
+	 * @return the weighted tardiness of the working permutation, or
+	 *         {@link #WORSE_THAN_CUTOFF}
+	 */
+	public int evaluate(int startIndex, int cutoff) {
+		evaluationCounter.increment();
+		return calculate(startIndex, cutoff);
+	}
+
+	/**
+	 * Uncounted version of {@link #evaluate(int, int)}
+	 */
+	private int calculate(int startIndex, int cutoff) {
+		int size = jobsOrder.size();
+		int endIndex = instance.calculateCompletionTimes(jobsOrder, completionTimes,
+				candidateCompletionTimes, startIndex, cutoff);
+		rowsCalculated += endIndex - startIndex;
+
+		candidateStartIndex = startIndex;
+		candidateEndIndex = size;
+		candidateDelta = 0;
+		if (endIndex < size) {
+			rowsSkipped += size - endIndex;
+			candidateWeightedTardiness = WORSE_THAN_CUTOFF;
+			return WORSE_THAN_CUTOFF;
+		}
+
+		/* Prefix (unchanged) weighted tardiness + the recalculated suffix */
+		int lastIndex = size - 1;
+		if (lastIndex >= startIndex) {
+			candidateWeightedTardiness = instance.getCumulativeWeightedTardiness(
+					candidateCompletionTimes, lastIndex);
+		} else {
+			candidateWeightedTardiness = instance.getCumulativeWeightedTardiness(
+					completionTimes, lastIndex);
+		}
+		if (candidateWeightedTardiness >= cutoff) {
+			candidateWeightedTardiness = WORSE_THAN_CUTOFF;
+		}
+		return candidateWeightedTardiness;
+	}
+
+	/**
+	 * Converging version of {@link #evaluate(int, int)}, for a working
+	 * permutation that only differs from the committed one between startIndex
+	 * and endIndex (inclusive), and has the same size. From endIndex onwards,
+	 * the recalculation stops at the first row that equals the committed row:
+	 * the weighted tardiness then follows from the committed one, shifted by
+	 * the difference at that row.
+	 * 
+	 * @param startIndex
+	 *            the lowest index that was changed by the move
+	 * @param endIndex
+	 *            the highest index that was changed by the move
+	 * @param cutoff
+	 *            the weighted tardiness the move has to be (strictly) lower
+	 *            than
+	 * @return the weighted tardiness of the working permutation, or
+	 *         {@link #WORSE_THAN_CUTOFF}
+	 */
+	public int evaluate(int startIndex, int endIndex, int cutoff) {
+		evaluationCounter.increment();
+		int size = jobsOrder.size();
+		int lastIndex = instance.calculateCompletionTimes(jobsOrder, completionTimes,
+				candidateCompletionTimes, startIndex, endIndex, cutoff);
+		rowsCalculated += lastIndex - startIndex;
+
+		candidateStartIndex = startIndex;
+		candidateEndIndex = lastIndex;
+		candidateDelta = 0;
+		if (lastIndex <= startIndex) {
+			/* Nothing changed */
+			candidateWeightedTardiness = weightedTardiness;
+		} else {
+			int cumulativeWeightedTardiness = instance.getCumulativeWeightedTardiness(
+					candidateCompletionTimes, lastIndex - 1);
+			if (cumulativeWeightedTardiness >= cutoff) {
+				rowsSkipped += size - lastIndex;
+				candidateWeightedTardiness = WORSE_THAN_CUTOFF;
+				return WORSE_THAN_CUTOFF;
+			}
+			rowsConverged += size - lastIndex;
+			candidateDelta = cumulativeWeightedTardiness
+					- instance.getCumulativeWeightedTardiness(completionTimes, lastIndex - 1);
+			candidateWeightedTardiness = weightedTardiness + candidateDelta;
+		}
+		if (candidateWeightedTardiness >= cutoff) {
+			candidateWeightedTardiness = WORSE_THAN_CUTOFF;
+		}
+		return candidateWeightedTardiness;
+	}
+
+	/**
+	 * Keeps the last evaluated move, by copying the recalculated rows into the
+	 * committed completion times (and shifting the converged ones)
+	 */
+	public void commit() {
+		assert (candidateWeightedTardiness != WORSE_THAN_CUTOFF);
+		int from = candidateStartIndex * rowStride;
+		int to = candidateEndIndex * rowStride;
+		if (to > from) {
+			System.arraycopy(candidateCompletionTimes, from, completionTimes, from, to - from);
+		}
+		instance.shiftCumulativeWeightedTardiness(completionTimes, candidateEndIndex,
+				jobsOrder.size(), candidateDelta);
+		weightedTardiness = candidateWeightedTardiness;
+	}
+
+	/**
+	 * Calculates the weighted tardiness that would result from inserting a
+	 * job at the given position of the committed (partial) jobs order. The
+	 * committed rows before the position are reused, and neither the jobs
+	 * order nor the completion times are modified.
+	 */
+	public int evaluateInsertion(int jobId, int position) {
+		return evaluateInsertion(jobId, position, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Bounded version of {@link #evaluateInsertion(int, int)}, returning
+	 * {@link #WORSE_THAN_CUTOFF} as soon as the weighted tardiness reaches the
+	 * cutoff
+	 */
+	public int evaluateInsertion(int jobId, int position, int cutoff) {
+		evaluationCounter.increment();
+		int weightedTardiness = instance.calculateWeightedTardinessWithInsertion(jobsOrder,
+				completionTimes, jobId, position, insertionRowBuffer, cutoff);
+		if (weightedTardiness >= cutoff) {
+			return WORSE_THAN_CUTOFF;
+		}
+		return weightedTardiness;
+	}
+
+	/**
+	 * Scores every insertion position of a job in the committed (partial) jobs
+	 * order, and returns the (lowest) position that results in the lowest
+	 * weighted tardiness. That weighted tardiness is then available from
+	 * {@link #getBestInsertionWeightedTardiness()}.
+	 * 
+	 * This is not a single sweep: unlike the makespan, the weighted tardiness
+	 * of a position can not be derived from those of its neighbors, so every
+	 * position still costs a recalculation of the jobs after it, O(n*m) in the
+	 * worst case, and O(n^2*m) for the job. Positions of which the lower bound
+	 * (the committed weighted tardiness plus that of the inserted job, which
+	 * takes a single row) is not better than the best so far are skipped
+	 * without that recalculation; see
+	 * {@link PFSPInstance#calculateWeightedTardinessWithInsertion(Permutation, int[], int, int, int[], int)}.
+	 * 
+	 * The job is not inserted; use {@link #insert(int, int)} for that.
+	 */
+	public int findBestInsertion(int jobId) {
+		int bestPosition = -1;
+		bestInsertionWeightedTardiness = Integer.MAX_VALUE;
+
+		for (int i = 0; i <= jobsOrder.size(); i++) {
+			int weightedTardiness = evaluateInsertion(jobId, i, bestInsertionWeightedTardiness);
+			if (weightedTardiness < bestInsertionWeightedTardiness) {
+				bestPosition = i;
+				bestInsertionWeightedTardiness = weightedTardiness;
+			}
+		}
+		return bestPosition;
+	}
+
+	/**
+	 * Returns the weighted tardiness of the position found by the last call to
+	 * {@link #findBestInsertion(int)}
+	 */
+	public int getBestInsertionWeightedTardiness() {
+		return bestInsertionWeightedTardiness;
+	}
+
+	/**
+	 * Inserts a job at the given position, and commits the result
+	 */
+	public void insert(int jobId, int position) {
+		jobsOrder.insert(position, jobId);
+		update(position);
+	}
+
+	/**
+	 * Removes the job at the given position, commits the result and returns
+	 * the removed job
+	 */
+	public int remove(int position) {
+		int jobId = jobsOrder.remove(position);
+		update(position);
+		return jobId;
+	}
+
+	/**
+	 * Writes a hard copy of the committed state into a solution
+	 */
+	public void store(Solution solution) {
+		solution.jobsOrder = new Permutation(jobsOrder);
+		solution.completionTimes = completionTimes.clone();
+		solution.weightedTardiness = weightedTardiness;
+	}
+
+	/**
+	 * Sets the counter that counts the evaluations (every call to
+	 * {@link #evaluate(int, int)} or {@link #evaluateInsertion(int, int, int)})
+	 */
+	public void setEvaluationCounter(EvaluationCounter evaluationCounter) {
+		this.evaluationCounter = evaluationCounter;
+	}
+
+	public EvaluationCounter getEvaluationCounter() {
+		return evaluationCounter;
+	}
+
+	/**
+	 * Returns the number of rows calculated by {@link #evaluate(int, int)} and
+	 * {@link #evaluate(int, int, int)}
+	 */
+	public long getRowsCalculated() {
+		return rowsCalculated;
+	}
+
+	/**
+	 * Returns the number of rows that {@link #evaluate(int, int)} could skip
+	 * thanks to the cutoff
+	 */
+	public long getRowsSkipped() {
+		return rowsSkipped;
+	}
+
+	/**
+	 * Returns the number of rows that {@link #evaluate(int, int, int)} reused
+	 * because they converged to the committed ones
+	 */
+	public long getRowsConverged() {
+		return rowsConverged;
+	}
+
+	/**
+	 * Returns the working permutation, on which moves are to be applied
+	 */
+	public Permutation getJobsOrder() {
+		return jobsOrder;
+	}
+
+	/**
+	 * Returns the weighted tardiness of the committed state
+	 */
+	public int getWeightedTardiness() {
+		return weightedTardiness;
+	}
+}
@@ -2,16 +2,25 @@ package main;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import util.ExchangeListPermuter;
+import util.FastRandom;
 import util.InsertListPermuter;
 import util.ListPermuter;
+import util.Move;
+import util.Permutation;
 import util.TransposeListPermuter;
 
 /**
  * Provides access to easy generation of list permutations, based on the
  * neighborhood method.
  * 
+ * For random moves (e.g., in SA), the generator can also draw from a weighted
+ * mix of the neighborhoods: every random move first picks a neighborhood with
+ * a probability proportional to its weight, and then a uniformly random move
+ * of that neighborhood.
+ * 
  * @author Tom Jaspers
  * 
  */
@@ -29,26 +38,120 @@ public class NeighborhoodGenerator {
 		TRANSPOSE, EXCHANGE, INSERT
 	};
 
+	/* The permuter of the last selected move */
 	private ListPermuter listPermuter;
 
-	public NeighborhoodGenerator(List<Integer> initialNeighborhood, NeighborhoodMethod neighborhoodMethod) {
+	/* For a mix: the permuters, and the cumulative probabilities to pick them */
+	private ListPermuter[] mixedPermuters;
+	private double[] cumulativeProbabilities;
+	private Random rnd;
+
+	public NeighborhoodGenerator(Permutation initialNeighborhood, NeighborhoodMethod neighborhoodMethod) {
+		this(initialNeighborhood, neighborhoodMethod, new FastRandom());
+	}
+
+	/**
+	 * @param rnd
+	 *            source of randomness for {@link #nextRandomMove()} and
+	 *            {@link #getUniformlyRandom()}
+	 */
+	public NeighborhoodGenerator(Permutation initialNeighborhood,
+			NeighborhoodMethod neighborhoodMethod, Random rnd) {
+		listPermuter = createListPermuter(initialNeighborhood, neighborhoodMethod, rnd);
+	}
+
+	/**
+	 * Creates a generator of random moves from a weighted mix of the
+	 * neighborhoods. Only the random moves ({@link #nextRandomMove()}) are
+	 * supported by a mix of more than one neighborhood.
+	 * 
+	 * @param weights
+	 *            the weight of every neighborhood method (by ordinal), not
+	 *            negative and not all 0
+	 */
+	public NeighborhoodGenerator(Permutation initialNeighborhood, double[] weights, Random rnd) {
+		NeighborhoodMethod[] methods = NeighborhoodMethod.values();
+		if (weights.length != methods.length) {
+			throw new RuntimeException("Expected " + methods.length + " neighborhood weights");
+		}
+		double total = 0;
+		int used = 0;
+		for (int i = 0; i < weights.length; i++) {
+			if (weights[i] < 0) {
+				throw new RuntimeException("Negative weight of " + methods[i]);
+			}
+			if (weights[i] > 0) {
+				total += weights[i];
+				used++;
+			}
+		}
+		if (used == 0) {
+			throw new RuntimeException("No neighborhood has a weight");
+		}
+
+		mixedPermuters = new ListPermuter[used];
+		cumulativeProbabilities = new double[used];
+		double cumulative = 0;
+		int k = 0;
+		for (int i = 0; i < weights.length; i++) {
+			if (weights[i] > 0) {
+				cumulative += weights[i] / total;
+				mixedPermuters[k] = createListPermuter(initialNeighborhood, methods[i], rnd);
+				cumulativeProbabilities[k] = cumulative;
+				k++;
+			}
+		}
+		/* Guard against rounding in the last sum */
+		cumulativeProbabilities[used - 1] = 1.0;
+		listPermuter = mixedPermuters[0];
+		if (used == 1) {
+			// A single neighborhood, which needs no random pick
+			mixedPermuters = null;
+			cumulativeProbabilities = null;
+		}
+		this.rnd = rnd;
+	}
+
+	/**
+	 * Returns the weights of a "mix" of a single neighborhood method
+	 */
+	static double[] weightsOf(NeighborhoodMethod neighborhoodMethod) {
+		double[] weights = new double[NeighborhoodMethod.values().length];
+		weights[neighborhoodMethod.ordinal()] = 1.0;
+		return weights;
+	}
+
+	private static ListPermuter createListPermuter(Permutation initialNeighborhood,
+			NeighborhoodMethod neighborhoodMethod, Random rnd) {
 		switch (neighborhoodMethod) {
 		case TRANSPOSE:
-			listPermuter = new TransposeListPermuter(initialNeighborhood);
-			break;
+			return new TransposeListPermuter(initialNeighborhood, rnd);
 		case EXCHANGE:
-			listPermuter = new ExchangeListPermuter(initialNeighborhood);
-			break;
+			return new ExchangeListPermuter(initialNeighborhood, rnd);
 		case INSERT:
-			listPermuter = new InsertListPermuter(initialNeighborhood);
-			break;
+			return new InsertListPermuter(initialNeighborhood, rnd);
 		default:
 			throw new RuntimeException("Undefined NeighborhoodMethod: " + neighborhoodMethod);
 		}
 	}
 
-	public void setInitialNeighborhood(List<Integer> neighborhood) {
-		listPermuter.setInitialNeighborhood(neighborhood);
+	public void setInitialNeighborhood(Permutation neighborhood) {
+		if (mixedPermuters != null) {
+			for (ListPermuter mixedPermuter : mixedPermuters) {
+				mixedPermuter.setInitialNeighborhood(neighborhood);
+			}
+		} else {
+			listPermuter.setInitialNeighborhood(neighborhood);
+		}
+	}
+
+	/**
+	 * Throws if this is a mix, which has no sequential order of moves
+	 */
+	private void checkSequential() {
+		if (mixedPermuters != null) {
+			throw new RuntimeException("A mix of neighborhoods only supports random moves");
+		}
 	}
 
 	/**
@@ -57,6 +160,7 @@ public class NeighborhoodGenerator {
 	 * @see util.ListPermuter
 	 */
 	public boolean hasNext() {
+		checkSequential();
 		return listPermuter.hasNext();
 	}
 
@@ -65,25 +169,91 @@ public class NeighborhoodGenerator {
 	 * 
 	 * @see util.ListPermuter
 	 */
-	public List<Integer> getNext() {
+	public Permutation getNext() {
+		checkSequential();
 		return listPermuter.getNext();
 	}
 	
 	/**
 	 * Returns a uniformly random permutation from the underlying listPermuter
 	 */
-	public List<Integer> getUniformlyRandom(){
+	public Permutation getUniformlyRandom(){
+		selectRandomPermuter();
 		return listPermuter.getUniformlyRandom();
 	}
 
+	/**
+	 * Advances the underlying listPermuter to its next move, without
+	 * materializing the permutation
+	 * 
+	 * @see util.ListPermuter
+	 */
+	public boolean nextMove() {
+		checkSequential();
+		return listPermuter.nextMove();
+	}
+
+	/**
+	 * Selects a uniformly random move from the underlying listPermuter (of a
+	 * mix: from a neighborhood picked by weight), without materializing the
+	 * permutation
+	 * 
+	 * @see util.ListPermuter
+	 */
+	public boolean nextRandomMove() {
+		selectRandomPermuter();
+		return listPermuter.nextRandomMove();
+	}
+
+	/**
+	 * Picks the permuter of the next random move, if this is a mix
+	 */
+	private void selectRandomPermuter() {
+		if (mixedPermuters != null) {
+			double r = rnd.nextDouble();
+			int k = 0;
+			while (r >= cumulativeProbabilities[k]) {
+				k++;
+			}
+			listPermuter = mixedPermuters[k];
+		}
+	}
+
+	/**
+	 * Returns the descriptor of the last selected move
+	 * 
+	 * @see util.ListPermuter
+	 */
+	public Move getLastMove() {
+		return listPermuter.getLastMove();
+	}
+
+	/**
+	 * Performs the last selected move in place
+	 * 
+	 * @see util.ListPermuter
+	 */
+	public void applyMove(Permutation permutation) {
+		listPermuter.applyMove(permutation);
+	}
+
+	/**
+	 * Reverts the last selected move in place
+	 * 
+	 * @see util.ListPermuter
+	 */
+	public void undoMove(Permutation permutation) {
+		listPermuter.undoMove(permutation);
+	}
+
 	/**
 	 * Returns a list containing all possible permutations that the listPermuter
 	 * can find.
 	 */
-	public List<List<Integer>> getAll() {
-		List<List<Integer>> allPermutations = new ArrayList<List<Integer>>();
+	public List<Permutation> getAll() {
+		List<Permutation> allPermutations = new ArrayList<Permutation>();
 		while (hasNext()) {
-			List<Integer> next = getNext();
+			Permutation next = getNext();
 			if (next != null) {
 				allPermutations.add(next);
 			}
@@ -106,10 +276,25 @@ public class NeighborhoodGenerator {
 	 * @see util.ListPermuter
 	 */
 	public void resetCounters() {
+		checkSequential();
 		listPermuter.resetCounters();
 	}
 	
+	/**
+	 * Returns the number of neighbors (of a mix: the mean number of the
+	 * neighborhoods, weighted by their probabilities)
+	 */
 	public int getNeighborhoodSize(){
+		if (mixedPermuters != null) {
+			double size = 0;
+			double previous = 0;
+			for (int k = 0; k < mixedPermuters.length; k++) {
+				size += (cumulativeProbabilities[k] - previous)
+						* mixedPermuters[k].getPossibleNumberOfPermutations();
+				previous = cumulativeProbabilities[k];
+			}
+			return (int) Math.round(size);
+		}
 		return listPermuter.getPossibleNumberOfPermutations();
 	}
 
@@ -0,0 +1,231 @@
+package main;
+
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import main.NeighborhoodGenerator.NeighborhoodMethod;
+import util.Permutation;
+
+/**
+ * Fork/join task that scans (part of) a neighborhood for the best improving
+ * move, used by the parallel best-improvement pivot of {@link IISolver}.
+ *
+ * The moves are indexed by (i, j) in the same order as the list permuters
+ * visit them. The task splits the range of i over subtasks. Each subtask scans
+ * its range sequentially, with the evaluator of the worker thread it runs on
+ * (so each worker has its own scratch buffers). The partial results are then
+ * reduced to the move with the lowest weighted tardiness, where ties are
+ * broken by the lowest move index, so the result is exactly the move that the
+ * sequential best-improvement scan would select. The subtasks share the best
+ * weighted tardiness found so far to prune their evaluations; moves that tie
+ * with it are still evaluated, as they might have a lower move index.
+ *
+ * @author Tom Jaspers
+ *
+ */
+class NeighborhoodScanTask extends RecursiveTask<NeighborhoodScanTask.BestMove> {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Container for the best move found by a (sub)task; i == -1 if no move
+	 * was better than the cutoff. Also holds the number of evaluations done
+	 * by the (sub)task.
+	 */
+	static class BestMove {
+		int weightedTardiness;
+		int i = -1;
+		int j = -1;
+		long evaluations;
+
+		/**
+		 * Performs the move on the given permutation, and returns the lowest
+		 * index that was changed
+		 */
+		int apply(Permutation jobsOrder, NeighborhoodMethod neighborhoodMethod) {
+			switch (neighborhoodMethod) {
+			case TRANSPOSE:
+			case EXCHANGE:
+				jobsOrder.swap(i, j);
+				break;
+			case INSERT:
+				jobsOrder.move(i, j);
+				break;
+			default:
+				throw new RuntimeException("Undefined NeighborhoodMethod: " + neighborhoodMethod);
+			}
+			return Math.min(i, j);
+		}
+	}
+
+	private final ThreadLocal<MoveEvaluator> evaluators;
+	private final Permutation jobsOrder;
+	private final NeighborhoodMethod neighborhoodMethod;
+	private final int cutoff;
+	private final AtomicInteger sharedBestWeightedTardiness;
+	private final int fromIndex;
+	private final int toIndex;
+	private final int threshold;
+
+	/**
+	 * @param evaluators
+	 *            provides the evaluator of the current worker thread
+	 * @param jobsOrder
+	 *            the solution whose neighborhood is scanned (not modified)
+	 * @param cutoff
+	 *            the weighted tardiness moves have to improve on
+	 * @param fromIndex
+	 *            the first i of the range to scan (inclusive)
+	 * @param toIndex
+	 *            the last i of the range to scan (exclusive)
+	 * @param threshold
+	 *            the largest range that is scanned without splitting further
+	 */
+	NeighborhoodScanTask(ThreadLocal<MoveEvaluator> evaluators, Permutation jobsOrder,
+			NeighborhoodMethod neighborhoodMethod, int cutoff, int fromIndex, int toIndex,
+			int threshold) {
+		this(evaluators, jobsOrder, neighborhoodMethod, cutoff, new AtomicInteger(cutoff),
+				fromIndex, toIndex, threshold);
+	}
+
+	private NeighborhoodScanTask(ThreadLocal<MoveEvaluator> evaluators, Permutation jobsOrder,
+			NeighborhoodMethod neighborhoodMethod, int cutoff,
+			AtomicInteger sharedBestWeightedTardiness, int fromIndex, int toIndex, int threshold) {
+		this.evaluators = evaluators;
+		this.jobsOrder = jobsOrder;
+		this.neighborhoodMethod = neighborhoodMethod;
+		this.cutoff = cutoff;
+		this.sharedBestWeightedTardiness = sharedBestWeightedTardiness;
+		this.fromIndex = fromIndex;
+		this.toIndex = toIndex;
+		this.threshold = threshold;
+	}
+
+	/**
+	 * Returns the number of values of i for the neighborhood of a jobs order
+	 */
+	static int getNumberOfOuterIndices(NeighborhoodMethod neighborhoodMethod, int size) {
+		return (neighborhoodMethod == NeighborhoodMethod.INSERT) ? size : size - 1;
+	}
+
+	/**
+	 * Returns the number of moves scanned in the neighborhood of a jobs order
+	 */
+	static int getNumberOfMoves(NeighborhoodMethod neighborhoodMethod, int size) {
+		switch (neighborhoodMethod) {
+		case TRANSPOSE:
+			return size - 1;
+		case EXCHANGE:
+			return size * (size - 1) / 2;
+		case INSERT:
+			/* All (i, j) but the identity and the duplicates of transpose */
+			return size * (size - 1) - (size - 1);
+		default:
+			throw new RuntimeException("Undefined NeighborhoodMethod: " + neighborhoodMethod);
+		}
+	}
+
+	@Override
+	protected BestMove compute() {
+		if (toIndex - fromIndex <= threshold) {
+			return scan();
+		}
+		int middle = (fromIndex + toIndex) >>> 1;
+		NeighborhoodScanTask left = new NeighborhoodScanTask(evaluators, jobsOrder,
+				neighborhoodMethod, cutoff, sharedBestWeightedTardiness, fromIndex, middle,
+				threshold);
+		NeighborhoodScanTask right = new NeighborhoodScanTask(evaluators, jobsOrder,
+				neighborhoodMethod, cutoff, sharedBestWeightedTardiness, middle, toIndex,
+				threshold);
+		left.fork();
+		BestMove rightBestMove = right.compute();
+		BestMove leftBestMove = left.join();
+
+		long evaluations = leftBestMove.evaluations + rightBestMove.evaluations;
+		BestMove bestMove = leftBestMove;
+		/* On a tie, the left (lower move index) one wins */
+		if (rightBestMove.i != -1
+				&& (leftBestMove.i == -1 || rightBestMove.weightedTardiness < leftBestMove.weightedTardiness)) {
+			bestMove = rightBestMove;
+		}
+		bestMove.evaluations = evaluations;
+		return bestMove;
+	}
+
+	/**
+	 * Sequentially scans all moves with i in [fromIndex, toIndex)
+	 */
+	private BestMove scan() {
+		MoveEvaluator evaluator = evaluators.get();
+		long evaluationsBefore = evaluator.getEvaluationCounter().getEvaluations();
+		evaluator.load(jobsOrder);
+		Permutation workingJobsOrder = evaluator.getJobsOrder();
+		int size = workingJobsOrder.size();
+
+		BestMove bestMove = new BestMove();
+		bestMove.weightedTardiness = cutoff;
+		for (int i = fromIndex; i < toIndex; i++) {
+			switch (neighborhoodMethod) {
+			case TRANSPOSE:
+				scanSwap(evaluator, workingJobsOrder, i, i + 1, bestMove);
+				break;
+			case EXCHANGE:
+				for (int j = i + 1; j < size; j++) {
+					scanSwap(evaluator, workingJobsOrder, i, j, bestMove);
+				}
+				break;
+			case INSERT:
+				int jobId = evaluator.remove(i);
+				for (int j = 0; j < size; j++) {
+					/* Skip the identity, and the duplicate of transposing (j, i) */
+					if (j == i || j == i + 1) {
+						continue;
+					}
+					int weightedTardiness = evaluator.evaluateInsertion(jobId, j,
+							getBound(bestMove));
+					if (weightedTardiness < bestMove.weightedTardiness) {
+						update(bestMove, weightedTardiness, i, j);
+					}
+				}
+				evaluator.insert(jobId, i);
+				break;
+			default:
+				throw new RuntimeException("Undefined NeighborhoodMethod: " + neighborhoodMethod);
+			}
+		}
+		bestMove.evaluations = evaluator.getEvaluationCounter().getEvaluations()
+				- evaluationsBefore;
+		return bestMove;
+	}
+
+	private void scanSwap(MoveEvaluator evaluator, Permutation workingJobsOrder, int i, int j,
+			BestMove bestMove) {
+		workingJobsOrder.swap(i, j);
+		int weightedTardiness = evaluator.evaluate(i, j, getBound(bestMove));
+		if (weightedTardiness < bestMove.weightedTardiness) {
+			update(bestMove, weightedTardiness, i, j);
+		}
+		workingJobsOrder.swap(i, j);
+	}
+
+	/**
+	 * Returns the cutoff for evaluating the next move: it has to improve on
+	 * the best move of this task, and may tie (but not be worse than) the best
+	 * move of all tasks
+	 */
+	private int getBound(BestMove bestMove) {
+		return Math.min(bestMove.weightedTardiness, sharedBestWeightedTardiness.get() + 1);
+	}
+
+	private void update(BestMove bestMove, int weightedTardiness, int i, int j) {
+		bestMove.weightedTardiness = weightedTardiness;
+		bestMove.i = i;
+		bestMove.j = j;
+
+		int sharedBest = sharedBestWeightedTardiness.get();
+		while (weightedTardiness < sharedBest
+				&& !sharedBestWeightedTardiness.compareAndSet(sharedBest, weightedTardiness)) {
+			sharedBest = sharedBestWeightedTardiness.get();
+		}
+	}
+}
@@ -1,15 +1,25 @@
 package main;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Scanner;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.util.Random;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
-import util.ListUtil;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import util.FastRandom;
+import util.IntTokenizer;
+import util.Permutation;
 
 /**
  * This class serves as a representation for the actual permutation flow-shop
@@ -26,7 +36,11 @@ public class PFSPInstance {
 		RANDOM_PERMUTATION, SLACK_HEURISTIC
 	};
 
-	private final static Charset ENCODING = StandardCharsets.UTF_8;
+	/* Binary instance files: the extension, and the header */
+	public final static String BINARY_EXTENSION = ".bin";
+	private final static int BINARY_MAGIC = 0x50465350; // "PFSP"
+	private final static int BINARY_VERSION = 1;
+	private final static int BINARY_HEADER_SIZE = 16;
 
 	private String instanceName;
 
@@ -36,10 +50,17 @@ public class PFSPInstance {
 	private int[] dueDates;
 	private int[] priorities;
 
-	private int[][] processingTimesMatrix;
+	/*
+	 * Processing times and completion times are stored as flat arrays, one
+	 * row (of rowStride ints) per job, with the machines contiguous. Element
+	 * [i][j] of the matrix is found at index i * rowStride + j.
+	 */
+	private int rowStride;
+	private int[] processingTimes;
 
 	private int idxJobId = 0;
 	private int idxJobCompletionTime;
+	private int idxCumulativeWeightedTardiness;
 
 	public PFSPInstance() {
 	}
@@ -56,8 +77,13 @@ public class PFSPInstance {
 		// size+1
 		dueDates = new int[numberOfJobs + 1];
 		priorities = new int[numberOfJobs + 1];
-		processingTimesMatrix = new int[numberOfJobs + 1][numberOfMachines + 1];
+		// Index 0 holds the job id, 1 to numberOfMachines the machines, and
+		// numberOfMachines + 1 the cumulative weighted tardiness (of the
+		// completion times)
+		rowStride = numberOfMachines + 2;
+		processingTimes = new int[(numberOfJobs + 1) * rowStride];
 		idxJobCompletionTime = numberOfMachines;
+		idxCumulativeWeightedTardiness = numberOfMachines + 1;
 	}
 	
 	/**
@@ -73,7 +99,7 @@ public class PFSPInstance {
 		
 		for (int i = 1; i <= numberOfJobs; i++) {
 			for (int j = 1; j <= numberOfMachines; j++) {
-				temperature+= processingTimesMatrix[i][j];
+				temperature+= processingTimes[i * rowStride + j];
 			}
 		}
 		
@@ -82,19 +108,79 @@ public class PFSPInstance {
 
 	/**
 	 * Reads and processes a file (given by its filename) in to the object's
-	 * representation.
+	 * representation. If a binary version of the file (see
+	 * {@link #getBinaryPath(Path)}) exists and is at least as recent, that one
+	 * is read instead. A file ending in {@value #BINARY_EXTENSION} is always
+	 * read as a binary file.
 	 */
 	public void readDataFromFile(String fileName) throws Exception {
 
 		final Path filePath = Paths.get(fileName);
 
-		this.instanceName = filePath.getFileName().toString();
+		String name = filePath.getFileName().toString();
+		if (name.endsWith(BINARY_EXTENSION)) {
+			this.instanceName = name.substring(0, name.length() - BINARY_EXTENSION.length());
+			readBinaryFile(filePath);
+			return;
+		}
+		this.instanceName = name;
+
+		Path binaryPath = getBinaryPath(filePath);
+		if (Files.exists(binaryPath)
+				&& Files.getLastModifiedTime(binaryPath).compareTo(
+						Files.getLastModifiedTime(filePath)) >= 0) {
+			readBinaryFile(binaryPath);
+		} else {
+			readTextFile(filePath);
+		}
+	}
+
+	/**
+	 * Returns the path of the binary version of an instance file: the same
+	 * path, with {@value #BINARY_EXTENSION} appended
+	 */
+	public static Path getBinaryPath(Path filePath) {
+		return filePath.resolveSibling(filePath.getFileName() + BINARY_EXTENSION);
+	}
+
+	/**
+	 * Returns the number of jobs and the number of machines of an instance
+	 * file, read from the header of a binary file or the first line of a text
+	 * file, without reading the rest of the data
+	 */
+	public static int[] readDimensions(Path filePath) throws IOException {
+		try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+			if (filePath.getFileName().toString().endsWith(BINARY_EXTENSION)) {
+				ByteBuffer buffer = ByteBuffer.allocate(BINARY_HEADER_SIZE);
+				while (buffer.hasRemaining()) {
+					if (channel.read(buffer) < 0) {
+						break;
+					}
+				}
+				((Buffer) buffer).flip();
+				if (buffer.remaining() < BINARY_HEADER_SIZE || buffer.getInt() != BINARY_MAGIC
+						|| buffer.getInt() != BINARY_VERSION) {
+					throw new IOException("Not a binary instance file: " + filePath);
+				}
+				return new int[] { buffer.getInt(), buffer.getInt() };
+			}
+			IntTokenizer tokenizer = new IntTokenizer(channel.map(MapMode.READ_ONLY, 0,
+					channel.size()));
+			return new int[] { tokenizer.nextInt(), tokenizer.nextInt() };
+		}
+	}
 
-		int currentValue;
-		try (Scanner scanner = new Scanner(filePath, ENCODING.name())) {
+	/**
+	 * Parses an instance file in the (text) format of the benchmark
+	 * instances. The file is memory-mapped and tokenized byte by byte.
+	 */
+	void readTextFile(Path filePath) throws Exception {
+		try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+			IntTokenizer tokenizer = new IntTokenizer(channel.map(MapMode.READ_ONLY, 0,
+					channel.size()));
 			// First line contains number of jobs and machines
-			numberOfJobs = scanner.nextInt();
-			numberOfMachines = scanner.nextInt();
+			numberOfJobs = tokenizer.nextInt();
+			numberOfMachines = tokenizer.nextInt();
 
 			// Once we got the numberOfJobs and numberOfMachines, we can
 			// initialize the arrays
@@ -104,37 +190,96 @@ public class PFSPInstance {
 			// time)
 			for (int i = 1; i <= numberOfJobs; i++) {
 				for (int j = 1; j <= numberOfMachines; j++) {
-					scanner.nextInt(); // Machine number, don't really care
-					currentValue = scanner.nextInt(); // processingTime
-					processingTimesMatrix[i][j] = currentValue;
+					tokenizer.nextInt(); // Machine number, don't really care
+					processingTimes[i * rowStride + j] = tokenizer.nextInt();
 				}
 			}
 			// "Reldue" line in the file
-			scanner.next();
+			tokenizer.skipToken();
 			// Last set of lines contain information regarding dueDate and
 			// priority
 			for (int i = 1; i <= numberOfJobs; i++) {
-				scanner.nextInt(); // -1
-				currentValue = scanner.nextInt(); // dueDate
-				dueDates[i] = currentValue;
-				scanner.nextInt(); // -1
-				currentValue = scanner.nextInt(); // priority
-				priorities[i] = currentValue;
+				tokenizer.nextInt(); // -1
+				dueDates[i] = tokenizer.nextInt();
+				tokenizer.nextInt(); // -1
+				priorities[i] = tokenizer.nextInt();
+			}
+		}
+	}
+
+	/**
+	 * Reads an instance file in the binary format (see
+	 * {@link #writeBinaryFile(Path)})
+	 */
+	void readBinaryFile(Path filePath) throws Exception {
+		try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.remaining() < BINARY_HEADER_SIZE || buffer.getInt() != BINARY_MAGIC
+					|| buffer.getInt() != BINARY_VERSION) {
+				throw new RuntimeException("Not a binary instance file: " + filePath);
+			}
+			numberOfJobs = buffer.getInt();
+			numberOfMachines = buffer.getInt();
+			if (numberOfJobs < 0 || numberOfMachines < 0
+					|| buffer.remaining() != 4L * numberOfJobs * (numberOfMachines + 2)) {
+				throw new RuntimeException("Corrupt binary instance file: " + filePath);
+			}
 
+			initializeArrays();
+
+			IntBuffer data = buffer.asIntBuffer();
+			for (int i = 1; i <= numberOfJobs; i++) {
+				data.get(processingTimes, i * rowStride + 1, numberOfMachines);
 			}
+			data.get(dueDates, 1, numberOfJobs);
+			data.get(priorities, 1, numberOfJobs);
 		}
+	}
 
+	/**
+	 * Writes this instance in the binary format: a header (magic number,
+	 * version, number of jobs, number of machines) followed by the processing
+	 * times (per job, for every machine), the due dates and the priorities,
+	 * all as big-endian ints. The file is replaced atomically.
+	 */
+	public void writeBinaryFile(Path filePath) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BINARY_HEADER_SIZE + 4 * numberOfJobs
+				* (numberOfMachines + 2));
+		buffer.putInt(BINARY_MAGIC).putInt(BINARY_VERSION).putInt(numberOfJobs)
+				.putInt(numberOfMachines);
+		IntBuffer data = buffer.asIntBuffer();
+		for (int i = 1; i <= numberOfJobs; i++) {
+			data.put(processingTimes, i * rowStride + 1, numberOfMachines);
+		}
+		data.put(dueDates, 1, numberOfJobs);
+		data.put(priorities, 1, numberOfJobs);
+
+		Path directory = filePath.toAbsolutePath().getParent();
+		Path temporaryFile = Files.createTempFile(directory, filePath.getFileName().toString(),
+				".tmp");
+		Files.write(temporaryFile, buffer.array());
+		Files.move(temporaryFile, filePath, StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
 	}
 
 	/**
 	 * Creates and returns an initial solution (i.e., a permutation) for this
 	 * problem instance, based on the given {@link InitializationMethod}
 	 */
-	public List<Integer> getInitialSolution(
+	public Permutation getInitialSolution(
 			InitializationMethod initializationMethod) {
+		return getInitialSolution(initializationMethod, new FastRandom());
+	}
+
+	/**
+	 * Same as {@link #getInitialSolution(InitializationMethod)}, with the
+	 * random generator to use for a random permutation
+	 */
+	public Permutation getInitialSolution(
+			InitializationMethod initializationMethod, Random rnd) {
 		switch (initializationMethod) {
 		case RANDOM_PERMUTATION:
-			return getRandomInitialSolution();
+			return getRandomInitialSolution(rnd);
 		case SLACK_HEURISTIC:
 			return getConstructiveInitialSolution();
 		default:
@@ -146,16 +291,24 @@ public class PFSPInstance {
 	/**
 	 * Generates an initial solution using a random permutation of the N JobIds
 	 * 
-	 * @return List<Integer> representing an initial solution as an ordering of
+	 * @return Permutation representing an initial solution as an ordering of
 	 *         JobIds (0-indexed)
 	 */
-	public List<Integer> getRandomInitialSolution() {
-		List<Integer> solution = new ArrayList<Integer>();
+	public Permutation getRandomInitialSolution() {
+		return getRandomInitialSolution(new FastRandom());
+	}
+
+	/**
+	 * Same as {@link #getRandomInitialSolution()}, using the given random
+	 * generator
+	 */
+	public Permutation getRandomInitialSolution(Random rnd) {
+		Permutation solution = new Permutation(numberOfJobs);
 
 		for (int i = 0; i < getNumberOfJobs(); i++) {
 			solution.add(i + 1);
 		}
-		Collections.shuffle(solution);
+		solution.shuffle(rnd);
 
 		return solution;
 	}
@@ -169,15 +322,16 @@ public class PFSPInstance {
 	 * ). At each iteration Ci corresponds to the makespan of the partial
 	 * solution.
 	 * 
-	 * @return List<Integer> representing an initial solution as an ordering of
+	 * @return Permutation representing an initial solution as an ordering of
 	 *         JobIds (0-indexed)
 	 */
-	public List<Integer> getConstructiveInitialSolution() {
-		List<Integer> solution = new ArrayList<Integer>();
-		int[][] partialCompletionTimes = calculateCompletionTimes(solution);
+	public Permutation getConstructiveInitialSolution() {
+		Permutation solution = new Permutation(numberOfJobs);
+		int[] partialCompletionTimes = calculateCompletionTimes(solution);
+		int[] newPartialCompletionTimes = createCompletionTimes();
 
 		/* Create a job domain to keep track of the jobs already in our solution */
-		List<Integer> jobDomain = new ArrayList<Integer>();
+		Permutation jobDomain = new Permutation(numberOfJobs);
 		for (int i = 1; i <= numberOfJobs; i++) {
 			jobDomain.add(i);
 		}
@@ -201,11 +355,12 @@ public class PFSPInstance {
 				 * Simulate adding this job to the solution, to retrieve the
 				 * partial makespan
 				 */
-				List<Integer> newSolution = new ArrayList<Integer>(solution);
-				newSolution.add(jobId);
-				int[][] newPartialCompletionTimes = reCalculateCompletionTimes(
-						newSolution, partialCompletionTimes, i);
-				int partialMakespanWithThisJob = newPartialCompletionTimes[i][idxJobCompletionTime];
+				solution.add(jobId);
+				calculateCompletionTimes(solution, partialCompletionTimes,
+						newPartialCompletionTimes, i);
+				solution.remove(i);
+				int partialMakespanWithThisJob = newPartialCompletionTimes[i * rowStride
+						+ idxJobCompletionTime];
 
 				int weightedEarliness = (weight * (dueDate - partialMakespanWithThisJob));
 
@@ -217,7 +372,7 @@ public class PFSPInstance {
 			}
 			/* Add the job to the solution, and remove it from the domain */
 			solution.add(bestJobId);
-			partialCompletionTimes = reCalculateCompletionTimes(solution,
+			calculateCompletionTimes(solution, partialCompletionTimes,
 					partialCompletionTimes, i);
 			jobDomain.remove(idxBestJobId);
 		}
@@ -225,20 +380,35 @@ public class PFSPInstance {
 		return solution;
 	}
 
+	/**
+	 * Allocates a flat completion times matrix that can hold a complete jobs
+	 * order for this instance.
+	 * 
+	 * Row i (i.e., the job at index i in the jobs order) starts at index
+	 * i * {@link #getRowStride()}; its first element holds the jobId, the
+	 * following numberOfMachines elements hold the completion times of that job
+	 * on each machine, and the next element holds the cumulative weighted
+	 * tardiness of the jobs at index 0 up to (and including) i.
+	 */
+	public int[] createCompletionTimes() {
+		return new int[numberOfJobs * rowStride];
+	}
+
 	/**
 	 * Calculates the completion time for a given jobs order (permutation) when
 	 * no previous completion times has been provided (i.e., during the initial
 	 * construction of a solution). If there has been a previously existing
 	 * completion times, the function
-	 * {@link #reCalculateCompletionTimes(List, int[][], int)} could be used to
+	 * {@link #reCalculateCompletionTimes(Permutation, int[], int)} could be used to
 	 * reduce computation.
 	 * 
-	 * @see #reCalculateCompletionTimes(List, int[][], int)
+	 * @see #reCalculateCompletionTimes(Permutation, int[], int)
 	 */
-	public int[][] calculateCompletionTimes(List<Integer> jobsOrder) {
-		int[][] previousCompletionTimes = new int[numberOfJobs][numberOfMachines + 1];
+	public int[] calculateCompletionTimes(Permutation jobsOrder) {
+		int[] completionTimes = createCompletionTimes();
 
-		return reCalculateCompletionTimes(jobsOrder, previousCompletionTimes, 0);
+		calculateCompletionTimes(jobsOrder, completionTimes, completionTimes, 0);
+		return completionTimes;
 	}
 
 	/**
@@ -253,62 +423,286 @@ public class PFSPInstance {
 	 * items; to recaluclate, we can use the completion times of list B, and
 	 * recaluclate starting from index N-2
 	 */
-	public int[][] reCalculateCompletionTimes(List<Integer> jobsOrder,
-			final int[][] previousCompletionTimes, int startIndex) {
+	public int[] reCalculateCompletionTimes(Permutation jobsOrder,
+			final int[] previousCompletionTimes, int startIndex) {
 		// we need a proper copy to run the simulated move on !
-		int[][] completionTimes = ListUtil.copyOf(previousCompletionTimes);
+		int[] completionTimes = Arrays.copyOf(previousCompletionTimes,
+				previousCompletionTimes.length);
+
+		calculateCompletionTimes(jobsOrder, completionTimes, completionTimes, startIndex);
+		return completionTimes;
+	}
+
+	/**
+	 * Converging version of
+	 * {@link #reCalculateCompletionTimes(Permutation, int[], int)}, for a jobs
+	 * order that only differs from the previous one between startIndex and
+	 * endIndex (inclusive). Once a recalculated row from endIndex onwards
+	 * equals the previous one, the remaining rows are reused instead of
+	 * recalculated, with only their cumulative weighted tardiness updated.
+	 * 
+	 * E.g., after swapping two adjacent jobs at N/2, the completion times
+	 * often equal the old ones again a few jobs later, so most of the second
+	 * half of the matrix does not need to be recalculated.
+	 */
+	public int[] reCalculateCompletionTimes(Permutation jobsOrder,
+			final int[] previousCompletionTimes, int startIndex, int endIndex) {
+		int[] completionTimes = Arrays.copyOf(previousCompletionTimes,
+				previousCompletionTimes.length);
+
+		int size = jobsOrder.size();
+		int convergedIndex = calculateCompletionTimes(jobsOrder, previousCompletionTimes,
+				completionTimes, startIndex, endIndex, Integer.MAX_VALUE);
+		if (convergedIndex < size) {
+			shiftCumulativeWeightedTardiness(completionTimes, convergedIndex, size,
+					getCumulativeWeightedTardiness(completionTimes, convergedIndex - 1)
+							- getCumulativeWeightedTardiness(previousCompletionTimes,
+									convergedIndex - 1));
+		}
+		return completionTimes;
+	}
+
+	/**
+	 * Calculates the completion times of the jobs at index startIndex and
+	 * onwards, writing them into the (preallocated) completionTimes matrix.
+	 * The row preceding startIndex is read from previousCompletionTimes, so
+	 * the rows before startIndex of completionTimes do not need to be valid.
+	 * Passing the same matrix twice performs the recalculation in place.
+	 * 
+	 * The cumulative weighted tardiness is updated along with the completion
+	 * times, continuing from the (unchanged) prefix value at startIndex - 1.
+	 * 
+	 * @see MoveEvaluator
+	 */
+	public void calculateCompletionTimes(Permutation jobsOrder,
+			final int[] previousCompletionTimes, int[] completionTimes, int startIndex) {
+		calculateCompletionTimes(jobsOrder, previousCompletionTimes, completionTimes,
+				startIndex, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Bounded version of
+	 * {@link #calculateCompletionTimes(Permutation, int[], int[], int)}: as the
+	 * cumulative weighted tardiness can only grow, the calculation is aborted
+	 * as soon as it reaches the cutoff, since the total will not be lower than
+	 * the cutoff either.
+	 * 
+	 * @return the index following the last row that was calculated (i.e., the
+	 *         size of the jobs order if the calculation was not aborted)
+	 */
+	public int calculateCompletionTimes(Permutation jobsOrder,
+			final int[] previousCompletionTimes, int[] completionTimes, int startIndex,
+			int cutoff) {
+		return calculateCompletionTimes(jobsOrder, previousCompletionTimes, completionTimes,
+				startIndex, Integer.MAX_VALUE, cutoff);
+	}
+
+	/**
+	 * Converging version of
+	 * {@link #calculateCompletionTimes(Permutation, int[], int[], int, int)},
+	 * for a jobs order that only differs from the one of
+	 * previousCompletionTimes between startIndex and convergenceIndex (as
+	 * after a transpose, exchange or insert move). From convergenceIndex
+	 * onwards, the calculation stops at the first row that holds the same job
+	 * and the same completion times as the row of previousCompletionTimes: all
+	 * later rows are then equal as well, except for their cumulative weighted
+	 * tardiness, which is shifted by the difference at that row (see
+	 * {@link #shiftCumulativeWeightedTardiness(int[], int, int, int)}).
+	 * 
+	 * The rows are compared with the original ones, so previousCompletionTimes
+	 * and completionTimes need to be different matrices.
+	 * 
+	 * @return the index following the last row that was calculated: the size
+	 *         of the jobs order, or less if the calculation was aborted (the
+	 *         cumulative weighted tardiness of the last row reached the
+	 *         cutoff) or converged (it did not)
+	 */
+	public int calculateCompletionTimes(Permutation jobsOrder,
+			final int[] previousCompletionTimes, int[] completionTimes, int startIndex,
+			int convergenceIndex, int cutoff) {
+		final int[] processingTimes = this.processingTimes;
+		final int rowStride = this.rowStride;
+		final int numberOfMachines = this.numberOfMachines;
 
 		int jobId;
+		int row;
+		int processingTimesRow;
 		int previousMachineEndTime;
-		int previousJobMachineEndTime;
+		int[] previousRows = previousCompletionTimes;
+		int cumulativeWeightedTardiness = (startIndex > 0) ? previousCompletionTimes[(startIndex - 1)
+				* rowStride + idxCumulativeWeightedTardiness] : 0;
 		for (int i = startIndex; i < jobsOrder.size(); i++) {
 			jobId = jobsOrder.get(i);
-			completionTimes[i][idxJobId] = jobId;
+			row = i * rowStride;
+			processingTimesRow = jobId * rowStride;
+			completionTimes[row + idxJobId] = jobId;
 			previousMachineEndTime = 0;
 			if (i == 0) {
 				for (int j = 1; j <= numberOfMachines; j++) {
 					previousMachineEndTime = previousMachineEndTime
-							+ processingTimesMatrix[jobId][j];
-					completionTimes[i][j] = previousMachineEndTime;
+							+ processingTimes[processingTimesRow + j];
+					completionTimes[row + j] = previousMachineEndTime;
 				}
 			} else {
+				int previousRow = row - rowStride;
 				for (int j = 1; j <= numberOfMachines; j++) {
-					previousJobMachineEndTime = completionTimes[i - 1][j];
 					previousMachineEndTime = Math.max(previousMachineEndTime,
-							previousJobMachineEndTime)
-							+ processingTimesMatrix[jobId][j];
-					completionTimes[i][j] = previousMachineEndTime;
+							previousRows[previousRow + j])
+							+ processingTimes[processingTimesRow + j];
+					completionTimes[row + j] = previousMachineEndTime;
 				}
 			}
+			cumulativeWeightedTardiness += Math.max(previousMachineEndTime - dueDates[jobId], 0)
+					* priorities[jobId];
+			completionTimes[row + idxCumulativeWeightedTardiness] = cumulativeWeightedTardiness;
+			previousRows = completionTimes;
+			if (cumulativeWeightedTardiness >= cutoff) {
+				return i + 1;
+			}
+			if (i >= convergenceIndex && previousCompletionTimes[row + idxJobId] == jobId
+					&& isRowEqual(previousCompletionTimes, completionTimes, row)) {
+				return i + 1;
+			}
+		}
+		return jobsOrder.size();
+	}
 
+	/**
+	 * Returns true if the completion times of the row starting at the given
+	 * index are equal in both matrices
+	 */
+	private boolean isRowEqual(final int[] completionTimes, final int[] otherCompletionTimes,
+			int row) {
+		for (int j = numberOfMachines; j >= 1; j--) {
+			if (completionTimes[row + j] != otherCompletionTimes[row + j]) {
+				return false;
+			}
 		}
-		return completionTimes;
+		return true;
 	}
 
 	/**
-	 * Calculates the total weighted tardiness from an array of completion times
+	 * Adds delta to the cumulative weighted tardiness of the rows from
+	 * fromIndex up to (but not including) toIndex, i.e., the rows that
+	 * converged to the previous completion times of a recalculation.
+	 */
+	public void shiftCumulativeWeightedTardiness(int[] completionTimes, int fromIndex,
+			int toIndex, int delta) {
+		if (delta == 0) {
+			return;
+		}
+		for (int i = fromIndex; i < toIndex; i++) {
+			completionTimes[i * rowStride + idxCumulativeWeightedTardiness] += delta;
+		}
+	}
+
+	/**
+	 * Calculates the weighted tardiness of the jobs order that results from
+	 * inserting jobId at the given position of jobsOrder, without modifying
+	 * the jobs order or its completion times. The rows before the position are
+	 * reused from completionTimes; the inserted job and the jobs after it are
+	 * recalculated in rowBuffer (which needs to hold at least rowStride ints),
+	 * one row at a time, so nothing is allocated.
+	 * 
+	 * The calculation is aborted as soon as the weighted tardiness reaches the
+	 * cutoff, in which case the (partial) value returned is not lower than the
+	 * cutoff. Before the jobs after the position are recalculated, the
+	 * inserted job alone gives a lower bound: inserting a job never makes a
+	 * later job finish earlier, so the weighted tardiness is at least that of
+	 * the jobs order without it, plus that of the inserted job. If this bound
+	 * reaches the cutoff, it is returned right away, at the cost of a single
+	 * row.
 	 * 
-	 * Possible enhancement: keep an array of CUMULATIVE weighted tardiness to
-	 * avoid recalculating everything
+	 * @see MoveEvaluator#findBestInsertion(int)
+	 */
+	public int calculateWeightedTardinessWithInsertion(Permutation jobsOrder,
+			final int[] completionTimes, int jobId, int position, int[] rowBuffer, int cutoff) {
+		int weightedTardiness = getCumulativeWeightedTardiness(completionTimes, position - 1);
+		if (position > 0) {
+			System.arraycopy(completionTimes, (position - 1) * rowStride + 1, rowBuffer, 1,
+					numberOfMachines);
+		} else {
+			Arrays.fill(rowBuffer, 1, numberOfMachines + 1, 0);
+		}
+
+		int insertedWeightedTardiness = appendJob(jobId, rowBuffer);
+		int lowerBound = getCumulativeWeightedTardiness(completionTimes, jobsOrder.size() - 1)
+				+ insertedWeightedTardiness;
+		if (lowerBound >= cutoff) {
+			return lowerBound;
+		}
+		weightedTardiness += insertedWeightedTardiness;
+		for (int i = position; i < jobsOrder.size() && weightedTardiness < cutoff; i++) {
+			weightedTardiness += appendJob(jobsOrder.get(i), rowBuffer);
+		}
+		return weightedTardiness;
+	}
+
+	/**
+	 * Overwrites a single row of completion times (holding those of the
+	 * previous job) with the completion times of jobId, and returns the
+	 * weighted tardiness of jobId
+	 */
+	private int appendJob(int jobId, int[] row) {
+		final int processingTimesRow = jobId * rowStride;
+		int previousMachineEndTime = 0;
+		for (int j = 1; j <= numberOfMachines; j++) {
+			previousMachineEndTime = Math.max(previousMachineEndTime, row[j])
+					+ processingTimes[processingTimesRow + j];
+			row[j] = previousMachineEndTime;
+		}
+		return Math.max(previousMachineEndTime - dueDates[jobId], 0) * priorities[jobId];
+	}
+
+	/**
+	 * Calculates the total weighted tardiness from an array of completion times
+	 * of a complete jobs order
 	 * 
 	 * @param completionTimes
 	 * @return int value indicating the total weighted tardiness
 	 */
-	public int calculateWeightedTardiness(int[][] completionTimes) {
-		int weightedTardiness = 0;
-
-		int jobId;
-		int jobCompletionTime;
-		int tardiness;
-		for (int i = 0; i < completionTimes.length; i++) {
-			jobId = completionTimes[i][idxJobId];
-			jobCompletionTime = completionTimes[i][idxJobCompletionTime];
+	public int calculateWeightedTardiness(int[] completionTimes) {
+		return calculateWeightedTardiness(completionTimes, 0, completionTimes.length / rowStride);
+	}
 
-			tardiness = Math.max(jobCompletionTime - dueDates[jobId], 0);
+	/**
+	 * Calculates the weighted tardiness of the jobs at index fromIndex
+	 * (inclusive) up to toIndex (exclusive) of an array of completion times.
+	 * As the cumulative weighted tardiness is kept next to the completion
+	 * times, this takes constant time.
+	 */
+	public int calculateWeightedTardiness(int[] completionTimes, int fromIndex, int toIndex) {
+		if (toIndex <= fromIndex) {
+			return 0;
+		}
+		return getCumulativeWeightedTardiness(completionTimes, toIndex - 1)
+				- getCumulativeWeightedTardiness(completionTimes, fromIndex - 1);
+	}
 
-			weightedTardiness += tardiness * priorities[jobId];
+	/**
+	 * Returns the weighted tardiness of the jobs at index 0 up to (and
+	 * including) the given index, from a flat completion times matrix
+	 */
+	public int getCumulativeWeightedTardiness(int[] completionTimes, int index) {
+		if (index < 0) {
+			return 0;
 		}
-		return weightedTardiness;
+		return completionTimes[index * rowStride + idxCumulativeWeightedTardiness];
+	}
+
+	/**
+	 * Returns the completion time of the job at the given index on the given
+	 * machine (1-indexed), from a flat completion times matrix
+	 */
+	public int getCompletionTime(int[] completionTimes, int index, int machine) {
+		return completionTimes[index * rowStride + machine];
+	}
+
+	/**
+	 * Returns the jobId at the given index, from a flat completion times matrix
+	 */
+	public int getJobId(int[] completionTimes, int index) {
+		return completionTimes[index * rowStride + idxJobId];
 	}
 
 	/* Getters below */
@@ -329,11 +723,56 @@ public class PFSPInstance {
 		return priorities;
 	}
 
-	public int[][] getProcessingTimesMatrix() {
-		return processingTimesMatrix;
+	/**
+	 * Returns the processing time of a job (1-indexed) on a machine
+	 * (1-indexed)
+	 */
+	public int getProcessingTime(int jobId, int machine) {
+		return processingTimes[jobId * rowStride + machine];
+	}
+
+	/**
+	 * Returns the number of ints per row in the flat processing times and
+	 * completion times matrices
+	 */
+	public int getRowStride() {
+		return rowStride;
 	}
 
 	public String getInstanceName() {
 		return instanceName;
 	}
+
+	/**
+	 * Returns a hash (hex encoded SHA-256) of the problem data: the numbers of
+	 * jobs and machines, the processing times, due dates and priorities. It
+	 * doesn't depend on the name or the formatting of the file, so it
+	 * identifies the instance wherever it was loaded from.
+	 */
+	public String getContentHash() {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("SHA-256 is not supported by this JVM", e);
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(4 * (2 + numberOfMachines));
+		buffer.putInt(numberOfJobs).putInt(numberOfMachines);
+		digest.update(buffer.array(), 0, buffer.position());
+		for (int i = 1; i <= numberOfJobs; i++) {
+			// Through Buffer, as ByteBuffer.clear() only exists since Java 9
+			((Buffer) buffer).clear();
+			for (int j = 1; j <= numberOfMachines; j++) {
+				buffer.putInt(processingTimes[i * rowStride + j]);
+			}
+			buffer.putInt(dueDates[i]).putInt(priorities[i]);
+			digest.update(buffer.array(), 0, buffer.position());
+		}
+
+		StringBuilder hash = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hash.append(String.format("%02x", b));
+		}
+		return hash.toString();
+	}
 }
@@ -0,0 +1,325 @@
+package main;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The parameters to tune, read from a parameter file in the syntax of irace
+ * (see irace/parameters.txt): one parameter per line,
+ *
+ * <pre>
+ * name  "switch"  type  (domain)  [| condition]
+ * </pre>
+ *
+ * with type c (categorical), o (ordinal), i (integer) or r (real), and a
+ * domain of values (c, o) or a lower and upper bound (i, r). A condition makes
+ * a parameter active only for some values of a parameter above it, as
+ * "name %in% c(a, b)" or "name == a". A configuration is an array with the
+ * value of every parameter, null if the parameter isn't active.
+ *
+ * @author Tom Jaspers
+ *
+ */
+public class ParameterSpace {
+
+	private static final Pattern LINE = Pattern
+			.compile("(\\w+)\\s+\"([^\"]*)\"\\s+([cior])\\s+\\(([^)]*)\\)\\s*(?:\\|\\s*(.*))?");
+	private static final Pattern IN_CONDITION = Pattern
+			.compile("(\\w+)\\s*%in%\\s*c\\s*\\(([^)]*)\\)");
+	private static final Pattern EQUALS_CONDITION = Pattern.compile("(\\w+)\\s*==\\s*(.+)");
+
+	/**
+	 * A parameter of the space
+	 */
+	public static class Parameter {
+		final String name;
+		final String label;
+		final char type;
+		/* The values of a c or o parameter */
+		final List<String> values;
+		/* The bounds of an i or r parameter */
+		final double lower;
+		final double upper;
+		/* Active if the parameter at conditionIndex has one of conditionValues */
+		int conditionIndex = -1;
+		List<String> conditionValues;
+
+		Parameter(String name, String label, char type, List<String> values, double lower,
+				double upper) {
+			this.name = name;
+			this.label = label;
+			this.type = type;
+			this.values = values;
+			this.lower = lower;
+			this.upper = upper;
+		}
+
+		public String getName() {
+			return name;
+		}
+	}
+
+	private final List<Parameter> parameters;
+	private int digits = 2;
+
+	private ParameterSpace(List<Parameter> parameters) {
+		this.parameters = Collections.unmodifiableList(parameters);
+	}
+
+	/**
+	 * Reads a parameter file. Comments start with #.
+	 *
+	 * @throws IOException
+	 *             if a line isn't a valid parameter
+	 */
+	public static ParameterSpace read(Path file) throws IOException {
+		List<Parameter> parameters = new ArrayList<Parameter>();
+		int lineNumber = 0;
+		for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+			lineNumber++;
+			int comment = line.indexOf('#');
+			if (comment >= 0) {
+				line = line.substring(0, comment);
+			}
+			line = line.trim();
+			if (line.isEmpty()) {
+				continue;
+			}
+			Matcher matcher = LINE.matcher(line);
+			if (!matcher.matches()) {
+				throw new IOException(file + ":" + lineNumber + ": invalid parameter: " + line);
+			}
+			char type = matcher.group(3).charAt(0);
+			List<String> domain = split(matcher.group(4));
+			Parameter parameter;
+			try {
+				if (type == 'i' || type == 'r') {
+					if (domain.size() != 2) {
+						throw new IOException(file + ":" + lineNumber
+								+ ": expected (lower, upper), got: " + matcher.group(4));
+					}
+					parameter = new Parameter(matcher.group(1), matcher.group(2), type, null,
+							Double.parseDouble(domain.get(0)), Double.parseDouble(domain.get(1)));
+				} else {
+					parameter = new Parameter(matcher.group(1), matcher.group(2), type, domain, 0,
+							domain.size() - 1);
+				}
+			} catch (NumberFormatException e) {
+				throw new IOException(file + ":" + lineNumber + ": invalid bound: "
+						+ e.getMessage());
+			}
+			if (parameter.lower > parameter.upper || parameter.upper < 0) {
+				throw new IOException(file + ":" + lineNumber + ": empty domain: " + line);
+			}
+			if (matcher.group(5) != null) {
+				setCondition(parameter, matcher.group(5).trim(), parameters);
+			}
+			parameters.add(parameter);
+		}
+		if (parameters.isEmpty()) {
+			throw new IOException(file + ": no parameters");
+		}
+		return new ParameterSpace(parameters);
+	}
+
+	private static void setCondition(Parameter parameter, String condition,
+			List<Parameter> parameters) throws IOException {
+		String name;
+		List<String> values;
+		Matcher matcher = IN_CONDITION.matcher(condition);
+		if (matcher.matches()) {
+			name = matcher.group(1);
+			values = split(matcher.group(2));
+		} else {
+			matcher = EQUALS_CONDITION.matcher(condition);
+			if (!matcher.matches()) {
+				throw new IOException("Unsupported condition of " + parameter.name + ": "
+						+ condition);
+			}
+			name = matcher.group(1);
+			values = split(matcher.group(2));
+		}
+		for (int i = 0; i < parameters.size(); i++) {
+			if (parameters.get(i).name.equals(name)) {
+				parameter.conditionIndex = i;
+				parameter.conditionValues = values;
+				return;
+			}
+		}
+		throw new IOException("Condition of " + parameter.name
+				+ " should refer to a parameter above it: " + condition);
+	}
+
+	/**
+	 * Splits a comma-separated list, and strips the quotes of its values
+	 */
+	private static List<String> split(String list) {
+		List<String> values = new ArrayList<String>();
+		for (String value : list.split(",")) {
+			value = value.trim();
+			if (value.length() >= 2 && (value.startsWith("\"") || value.startsWith("'"))) {
+				value = value.substring(1, value.length() - 1);
+			}
+			if (!value.isEmpty()) {
+				values.add(value);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Sets the number of decimal digits of real values (default: 2)
+	 */
+	public void setDigits(int digits) {
+		this.digits = digits;
+	}
+
+	public List<Parameter> getParameters() {
+		return parameters;
+	}
+
+	public int size() {
+		return parameters.size();
+	}
+
+	/**
+	 * Returns a configuration with every (active) value drawn uniformly from
+	 * its domain
+	 */
+	public String[] sampleUniform(Random rnd) {
+		String[] configuration = new String[parameters.size()];
+		for (int i = 0; i < configuration.length; i++) {
+			Parameter parameter = parameters.get(i);
+			if (!isActive(parameter, configuration)) {
+				continue;
+			}
+			configuration[i] = uniformValue(parameter, rnd);
+		}
+		return configuration;
+	}
+
+	/**
+	 * Returns a configuration sampled around a parent configuration. A
+	 * numerical value (and the index of an ordinal one) is drawn from a normal
+	 * distribution around the value of the parent, with a standard deviation
+	 * of spread times half of its range. A categorical value is drawn
+	 * uniformly with probability spread, and kept otherwise. A parameter that
+	 * is inactive in the parent is drawn uniformly.
+	 *
+	 * @param spread
+	 *            in (0, 1], decreasing as the tuning converges
+	 */
+	public String[] sampleAround(String[] parent, double spread, Random rnd) {
+		String[] configuration = new String[parameters.size()];
+		for (int i = 0; i < configuration.length; i++) {
+			Parameter parameter = parameters.get(i);
+			if (!isActive(parameter, configuration)) {
+				continue;
+			}
+			if (parent[i] == null || (parameter.type == 'c' && rnd.nextDouble() < spread)) {
+				configuration[i] = uniformValue(parameter, rnd);
+			} else if (parameter.type == 'c') {
+				configuration[i] = parent[i];
+			} else {
+				double center = (parameter.type == 'o') ? parameter.values.indexOf(parent[i])
+						: Double.parseDouble(parent[i]);
+				double deviation = spread * (parameter.upper - parameter.lower) / 2.0;
+				double value = center + rnd.nextGaussian() * deviation;
+				// Reflect at the bounds, then clamp (for very large deviations)
+				if (value < parameter.lower) {
+					value = 2 * parameter.lower - value;
+				} else if (value > parameter.upper) {
+					value = 2 * parameter.upper - value;
+				}
+				value = Math.max(parameter.lower, Math.min(parameter.upper, value));
+				if (parameter.type == 'o') {
+					configuration[i] = parameter.values.get((int) Math.round(value));
+				} else {
+					configuration[i] = format(parameter, value);
+				}
+			}
+		}
+		return configuration;
+	}
+
+	private String uniformValue(Parameter parameter, Random rnd) {
+		switch (parameter.type) {
+		case 'c':
+		case 'o':
+			return parameter.values.get(rnd.nextInt(parameter.values.size()));
+		case 'i':
+			return Long.toString((long) parameter.lower
+					+ rnd.nextInt((int) (parameter.upper - parameter.lower) + 1));
+		case 'r':
+			return format(parameter, parameter.lower + rnd.nextDouble()
+					* (parameter.upper - parameter.lower));
+		default:
+			throw new RuntimeException("Undefined parameter type: " + parameter.type);
+		}
+	}
+
+	private boolean isActive(Parameter parameter, String[] configuration) {
+		if (parameter.conditionIndex < 0) {
+			return true;
+		}
+		String value = configuration[parameter.conditionIndex];
+		return value != null && parameter.conditionValues.contains(value);
+	}
+
+	private String format(Parameter parameter, double value) {
+		if (parameter.type == 'i') {
+			long rounded = Math.round(value);
+			return Long.toString(Math.max((long) parameter.lower,
+					Math.min((long) parameter.upper, rounded)));
+		}
+		return new BigDecimal(value).setScale(digits, RoundingMode.HALF_UP).stripTrailingZeros()
+				.toPlainString();
+	}
+
+	/**
+	 * Returns the command line arguments of a configuration: the switch of
+	 * every active parameter, followed by its value (as a separate argument if
+	 * the switch ends with a space, as in irace)
+	 */
+	public List<String> toArguments(String[] configuration) {
+		List<String> arguments = new ArrayList<String>();
+		for (int i = 0; i < configuration.length; i++) {
+			if (configuration[i] == null) {
+				continue;
+			}
+			String label = parameters.get(i).label;
+			if (label.endsWith(" ")) {
+				arguments.addAll(Arrays.asList(label.trim().split("\\s+")));
+				arguments.add(configuration[i]);
+			} else {
+				arguments.add(label + configuration[i]);
+			}
+		}
+		return arguments;
+	}
+
+	/**
+	 * Returns the command line of a configuration
+	 */
+	public String toString(String[] configuration) {
+		StringBuilder commandLine = new StringBuilder();
+		for (String argument : toArguments(configuration)) {
+			if (commandLine.length() > 0) {
+				commandLine.append(' ');
+			}
+			commandLine.append(argument);
+		}
+		return commandLine.toString();
+	}
+}
@@ -0,0 +1,439 @@
+package main;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import util.FastRandom;
+import util.Statistics;
+
+/**
+ * In-process iterated racing tuner (F-race, as done by irace), which runs the
+ * experiments on a pool of threads of this JVM instead of a new JVM per
+ * experiment (irace/hook-run).
+ *
+ * The tuning consists of a number of races. Every race starts with the elite
+ * configurations of the previous race, and new configurations sampled around
+ * them (uniformly in the first race), and runs them on blocks of experiments.
+ * A block is an instance and a seed, which are the same for all configurations
+ * (common random numbers). After the first {@value #FIRST_TEST} blocks, a
+ * Friedman test is done after every block, and if it finds a difference, the
+ * configurations of which the rank sum is significantly worse than the best
+ * (by the post-hoc test of Conover) are eliminated. A race ends when its part
+ * of the budget is spent, or only the number of elites is left.
+ *
+ * Before the first race, the JVM is warmed up once on the first instance (see
+ * {@link WarmupHarness}), so the first experiments aren't timed on cold code.
+ *
+ * The number of races, configurations and elites follow the defaults of irace
+ * (for a budget of maxExperiments). As in irace, every race samples at least
+ * one new configuration (only the best elites are kept if they would fill the
+ * race), and races go on after the planned number while the budget left can
+ * race a new configuration.
+ *
+ * @author Tom Jaspers
+ *
+ */
+public class RaceTuner {
+
+	/* Number of blocks before the first elimination test */
+	private static final int FIRST_TEST = 5;
+	/* Confidence level of the statistical tests */
+	private static final double CONFIDENCE = 0.95;
+
+	/**
+	 * A configuration that takes part in the tuning
+	 */
+	private static class Candidate {
+		final int id;
+		final String[] configuration;
+		/* Rank sum in the last race it took part in */
+		double rankSum;
+		int blocks;
+
+		Candidate(int id, String[] configuration) {
+			this.id = id;
+			this.configuration = configuration;
+		}
+
+		double getMeanRank() {
+			return rankSum / blocks;
+		}
+	}
+
+	private static final Comparator<Candidate> BY_RANK = new Comparator<Candidate>() {
+		@Override
+		public int compare(Candidate a, Candidate b) {
+			return Double.compare(a.getMeanRank(), b.getMeanRank());
+		}
+	};
+
+	private final ParameterSpace space;
+	private final List<InstanceCatalog.Entry> instances;
+	private final List<String> fixedArguments;
+	private final int threads;
+	private final CalibrationCache calibrationCache;
+	private final PrintStream out;
+	private final Options options = Flowshop.createOptions();
+
+	private FastRandom rnd = new FastRandom();
+	private int budget = 1000;
+	/* Maximum run time of the warm-up (ms) */
+	private long warmupTime = 60000;
+
+	private int experiments;
+	private int candidates;
+	private List<InstanceCatalog.Entry> instanceOrder;
+	private int blocks;
+
+	/* The solver of the current worker thread */
+	private final ThreadLocal<SLSSolver> solvers = new ThreadLocal<SLSSolver>() {
+		@Override
+		protected SLSSolver initialValue() {
+			SLSSolver solver = new SLSSolver();
+			solver.setCalibrationCache(calibrationCache);
+			return solver;
+		}
+	};
+
+	/**
+	 * @param space
+	 *            the parameters to tune
+	 * @param instances
+	 *            the training instances
+	 * @param fixedArguments
+	 *            the options of "-run" that are the same for every experiment
+	 *            (at least -sls, and the budget of a run)
+	 * @param threads
+	 *            the number of experiments that are run in parallel
+	 * @param calibrationCache
+	 *            for the VND run times, if the runs have no budget
+	 * @param out
+	 *            where the progress is printed
+	 */
+	public RaceTuner(ParameterSpace space, List<InstanceCatalog.Entry> instances,
+			List<String> fixedArguments, int threads, CalibrationCache calibrationCache,
+			PrintStream out) {
+		if (instances.isEmpty()) {
+			throw new RuntimeException("No training instances");
+		}
+		this.space = space;
+		this.instances = instances;
+		this.fixedArguments = fixedArguments;
+		this.threads = threads;
+		this.calibrationCache = calibrationCache;
+		this.out = out;
+	}
+
+	public void setSeed(long seed) {
+		this.rnd = new FastRandom(seed);
+	}
+
+	/**
+	 * Sets the maximum number of experiments (runs) of the tuning (default:
+	 * 1000)
+	 */
+	public void setBudget(int budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Sets the maximum run time of the warm-up in milliseconds (see
+	 * {@link WarmupHarness}), 0 to skip it
+	 */
+	public void setWarmupTime(long warmupTime) {
+		if (warmupTime < 0) {
+			throw new RuntimeException("Invalid warm-up time: " + warmupTime);
+		}
+		this.warmupTime = warmupTime;
+	}
+
+	/**
+	 * Returns the number of experiments that were run
+	 */
+	public int getExperiments() {
+		return experiments;
+	}
+
+	/**
+	 * Runs the tuning, and returns the best configuration
+	 */
+	public String[] tune() {
+		int races = (int) (2 + Math.log(space.size()) / Math.log(2));
+		int elitesCount = races;
+
+		experiments = 0;
+		candidates = 0;
+		blocks = 0;
+		instanceOrder = new ArrayList<InstanceCatalog.Entry>(instances);
+		Collections.shuffle(instanceOrder, rnd);
+		warmUp(instanceOrder.get(0));
+
+		List<Candidate> elites = new ArrayList<Candidate>();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (int race = 1; experiments < budget; race++) {
+				int raceBudget = (budget - experiments) / Math.max(1, races - race + 1);
+				int count = raceBudget / (FIRST_TEST + Math.min(5, race));
+				if (count < (elites.isEmpty() ? 1 : 2)) {
+					// Not enough budget to race a new configuration
+					break;
+				}
+				if (count <= elites.size()) {
+					// Make room for at least one new configuration
+					elites = new ArrayList<Candidate>(elites.subList(0, count - 1));
+				}
+
+				List<Candidate> raceCandidates = new ArrayList<Candidate>(elites);
+				double spread = Math.pow(1.0 / count, (double) (race - 1) / space.size());
+				for (int i = elites.size(); i < count; i++) {
+					String[] configuration = elites.isEmpty() ? space.sampleUniform(rnd) : space
+							.sampleAround(selectParent(elites).configuration, spread, rnd);
+					raceCandidates.add(new Candidate(++candidates, configuration));
+				}
+
+				List<Candidate> survivors = race(executor, raceCandidates, raceBudget, elitesCount);
+				elites = new ArrayList<Candidate>(survivors.subList(0,
+						Math.min(elitesCount, survivors.size())));
+
+				Candidate best = elites.get(0);
+				out.println(String.format(Locale.ROOT,
+						"Race %d: %d configurations, %d survivors, %d experiments in total",
+						race, raceCandidates.size(), survivors.size(), experiments));
+				out.println(String.format(Locale.ROOT, "  best #%d (mean rank %.2f): %s", best.id,
+						best.getMeanRank(), space.toString(best.configuration)));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		if (elites.isEmpty()) {
+			throw new RuntimeException("Budget of " + budget + " experiments is too small");
+		}
+		if (experiments < budget) {
+			out.println(String.format(Locale.ROOT,
+					"Warning: %d of the %d experiments were left unused (too few to race a new configuration)",
+					budget - experiments, budget));
+		}
+		return elites.get(0).configuration;
+	}
+
+	/**
+	 * Warms up the JVM on an instance, before any experiment is run
+	 */
+	private void warmUp(InstanceCatalog.Entry entry) {
+		if (warmupTime == 0) {
+			return;
+		}
+		PFSPInstance instance;
+		try {
+			instance = entry.load();
+		} catch (Exception e) {
+			throw new RuntimeException("Failed to load instance " + entry.getName() + ": "
+					+ e.getMessage(), e);
+		}
+		WarmupHarness warmupHarness = new WarmupHarness(instance);
+		warmupHarness.setMaximumTime(warmupTime);
+		out.println("Warmed up the JVM: " + warmupHarness.run());
+	}
+
+	/**
+	 * Returns the command line of a configuration
+	 */
+	public String toString(String[] configuration) {
+		return space.toString(configuration);
+	}
+
+	/**
+	 * Picks an elite with a probability that decreases linearly with its rank
+	 * (as in irace); the elites are sorted
+	 */
+	private Candidate selectParent(List<Candidate> elites) {
+		int n = elites.size();
+		int pick = rnd.nextInt(n * (n + 1) / 2);
+		for (int i = 0; i < n; i++) {
+			pick -= n - i;
+			if (pick < 0) {
+				return elites.get(i);
+			}
+		}
+		return elites.get(n - 1);
+	}
+
+	/**
+	 * Races the candidates, and returns the survivors sorted by mean rank
+	 */
+	private List<Candidate> race(ExecutorService executor, List<Candidate> raceCandidates,
+			int raceBudget, int minimumSurvivors) {
+		List<Candidate> alive = new ArrayList<Candidate>(raceCandidates);
+		/* Per block, the results of all candidates of the race (by index) */
+		List<int[]> results = new ArrayList<int[]>();
+		int used = 0;
+		while (alive.size() > minimumSurvivors || results.isEmpty()) {
+			int newBlocks = (results.size() < FIRST_TEST) ? FIRST_TEST - results.size() : 1;
+			newBlocks = Math.min(newBlocks, (raceBudget - used) / alive.size());
+			if (newBlocks == 0) {
+				break;
+			}
+			evaluate(executor, raceCandidates, alive, newBlocks, results);
+			used += newBlocks * alive.size();
+			if (results.size() >= FIRST_TEST) {
+				alive = eliminate(raceCandidates, alive, results);
+			}
+		}
+		rank(raceCandidates, alive, results);
+		Collections.sort(alive, BY_RANK);
+		return alive;
+	}
+
+	/**
+	 * Runs the alive candidates on a number of new blocks, in parallel
+	 */
+	private void evaluate(ExecutorService executor, List<Candidate> raceCandidates,
+			List<Candidate> alive, int newBlocks, List<int[]> results) {
+		List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+		List<int[]> blockResults = new ArrayList<int[]>();
+		List<Integer> indices = new ArrayList<Integer>();
+		for (int block = 0; block < newBlocks; block++) {
+			final InstanceCatalog.Entry instance = instanceOrder.get(blocks++
+					% instanceOrder.size());
+			final long seed = rnd.nextLong();
+			blockResults.add(new int[raceCandidates.size()]);
+			for (final Candidate candidate : alive) {
+				futures.add(executor.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() throws Exception {
+						return runExperiment(candidate.configuration, instance, seed);
+					}
+				}));
+				indices.add(raceCandidates.indexOf(candidate));
+			}
+		}
+		try {
+			for (int i = 0; i < futures.size(); i++) {
+				blockResults.get(i / alive.size())[indices.get(i)] = futures.get(i).get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while tuning", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Experiment failed: " + e.getCause().getMessage(),
+					e.getCause());
+		}
+		experiments += futures.size();
+		results.addAll(blockResults);
+	}
+
+	/**
+	 * Runs a configuration on an instance with a seed, and returns the
+	 * weighted tardiness of the best solution
+	 */
+	private int runExperiment(String[] configuration, InstanceCatalog.Entry instance, long seed)
+			throws Exception {
+		List<String> arguments = new ArrayList<String>(fixedArguments);
+		arguments.addAll(Arrays.asList("-instance", instance.getPath().toString(), "-seed",
+				Long.toString(seed)));
+		arguments.addAll(space.toArguments(configuration));
+		RunConfiguration runConfiguration;
+		try {
+			runConfiguration = RunConfiguration.parse(new BasicParser().parse(options,
+					arguments.toArray(new String[arguments.size()])));
+		} catch (ParseException e) {
+			throw new RuntimeException(e.getMessage() + " (in " + arguments + ")", e);
+		}
+
+		SLSSolver solver = solvers.get();
+		solver.setInstance(instance.load());
+		TerminationController termination = runConfiguration.createTermination(solver);
+		Solution solution = runConfiguration.run(solver, termination,
+				runConfiguration.createRandom());
+		return solution.weightedTardiness;
+	}
+
+	/**
+	 * Sets the rank sums of the alive candidates over all blocks (rank 1 is
+	 * the lowest weighted tardiness of a block, ties get the mean rank), and
+	 * returns the sum of the squared ranks
+	 */
+	private double rank(List<Candidate> raceCandidates, List<Candidate> alive,
+			List<int[]> results) {
+		int k = alive.size();
+		int[] indices = new int[k];
+		for (int j = 0; j < k; j++) {
+			indices[j] = raceCandidates.indexOf(alive.get(j));
+			alive.get(j).rankSum = 0;
+			alive.get(j).blocks = results.size();
+		}
+		double squaredRanks = 0;
+		for (int[] block : results) {
+			for (int j = 0; j < k; j++) {
+				int value = block[indices[j]];
+				int lower = 0;
+				int equal = 0;
+				for (int other = 0; other < k; other++) {
+					int otherValue = block[indices[other]];
+					if (otherValue < value) {
+						lower++;
+					} else if (otherValue == value) {
+						equal++;
+					}
+				}
+				double rank = lower + (equal + 1) / 2.0;
+				alive.get(j).rankSum += rank;
+				squaredRanks += rank * rank;
+			}
+		}
+		return squaredRanks;
+	}
+
+	/**
+	 * Returns the candidates that are not significantly worse than the best,
+	 * by the Friedman test and the post-hoc test of Conover
+	 */
+	private List<Candidate> eliminate(List<Candidate> raceCandidates, List<Candidate> alive,
+			List<int[]> results) {
+		int k = alive.size();
+		int b = results.size();
+		double a = rank(raceCandidates, alive, results);
+		double c = b * k * (k + 1) * (k + 1) / 4.0;
+		if (a - c <= 0) {
+			// All results are tied
+			return alive;
+		}
+		double sum = 0;
+		double bestRankSum = Double.MAX_VALUE;
+		for (Candidate candidate : alive) {
+			double deviation = candidate.rankSum - b * (k + 1) / 2.0;
+			sum += deviation * deviation;
+			bestRankSum = Math.min(bestRankSum, candidate.rankSum);
+		}
+		double statistic = (k - 1) * sum / (a - c);
+		if (Statistics.chiSquaredSurvival(statistic, k - 1) >= 1 - CONFIDENCE) {
+			return alive;
+		}
+
+		double t = Statistics.studentTQuantile(1 - (1 - CONFIDENCE) / 2, (b - 1) * (k - 1));
+		double critical = t
+				* Math.sqrt(Math.max(0, 2 * b * (a - c) / ((b - 1) * (k - 1))
+						* (1 - statistic / (b * (k - 1)))));
+		List<Candidate> survivors = new ArrayList<Candidate>();
+		for (Candidate candidate : alive) {
+			if (candidate.rankSum - bestRankSum <= critical) {
+				survivors.add(candidate);
+			}
+		}
+		return survivors;
+	}
+}
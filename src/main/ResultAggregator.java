@@ -0,0 +1,261 @@
+package main;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Aggregates the results of benchmark runs as they finish, per algorithm and
+ * instance: the statistics of the final weighted tardiness (mean, median and
+ * quantiles), its relative percentage deviation (RPD) from the best known
+ * weighted tardiness, and the qualified run-time distributions (QRTD) for a
+ * set of quality targets.
+ *
+ * A quality target is an RPD from the best known value (e.g., 1.0 is 1% above
+ * it). For every target, only the time at which a run first reached it is
+ * kept (taken from its solution quality trace), so the traces themselves can
+ * be discarded once the run is added. Instances without a best known value
+ * only get the statistics of the weighted tardiness. A run that beats the
+ * best known value is reported on stderr (once per algorithm and instance),
+ * as it usually means the best known file is for other instances.
+ *
+ * @author Tom Jaspers
+ *
+ */
+public class ResultAggregator {
+
+	/* Default quality targets, as RPD (%) from the best known value */
+	private static final double[] DEFAULT_QUALITY_TARGETS = { 0.0, 0.5, 1.0, 2.0 };
+
+	/* Quantiles of the final weighted tardiness that are reported */
+	private static final double[] QUANTILES = { 0.1, 0.25, 0.5, 0.75, 0.9 };
+
+	/**
+	 * Aggregate of the runs of an algorithm on an instance
+	 */
+	private static class Aggregate {
+		final String algorithm;
+		final String instanceName;
+		final int bestKnown;
+
+		int runs;
+		int[] weightedTardiness = new int[8];
+		/* Per quality target, the times (ms) at which runs reached it */
+		final long[][] hitTimes;
+		final int[] hits;
+		boolean beatsBestKnown;
+
+		Aggregate(String algorithm, String instanceName, int bestKnown, int numberOfTargets) {
+			this.algorithm = algorithm;
+			this.instanceName = instanceName;
+			this.bestKnown = bestKnown;
+			this.hitTimes = new long[numberOfTargets][8];
+			this.hits = new int[numberOfTargets];
+		}
+	}
+
+	private final Map<String, Integer> bestKnown;
+	private double[] qualityTargets = DEFAULT_QUALITY_TARGETS;
+
+	/* In order of the first added run */
+	private final Map<String, Aggregate> aggregates = new LinkedHashMap<String, Aggregate>();
+
+	/**
+	 * @param bestKnown
+	 *            the best known weighted tardiness per instance name (see
+	 *            {@link InstanceCatalog#getBestKnown()})
+	 */
+	public ResultAggregator(Map<String, Integer> bestKnown) {
+		this.bestKnown = bestKnown;
+	}
+
+	/**
+	 * Sets the quality targets of the QRTDs, as RPD (%) from the best known
+	 * value. Has to be called before any runs are added.
+	 */
+	public synchronized void setQualityTargets(double... qualityTargets) {
+		if (!aggregates.isEmpty()) {
+			throw new RuntimeException("Quality targets can't change once runs are added");
+		}
+		this.qualityTargets = qualityTargets.clone();
+		Arrays.sort(this.qualityTargets);
+	}
+
+	/**
+	 * Adds the result of a run: its final weighted tardiness, and the times
+	 * at which its quality trace first reached the quality targets
+	 */
+	public synchronized void add(String algorithm, String instanceName, Solution solution) {
+		String key = algorithm + "," + instanceName;
+		Aggregate aggregate = aggregates.get(key);
+		if (aggregate == null) {
+			Integer instanceBestKnown = bestKnown.get(instanceName);
+			aggregate = new Aggregate(algorithm, instanceName,
+					(instanceBestKnown == null) ? -1 : instanceBestKnown, qualityTargets.length);
+			aggregates.put(key, aggregate);
+		}
+
+		if (aggregate.runs == aggregate.weightedTardiness.length) {
+			aggregate.weightedTardiness = Arrays.copyOf(aggregate.weightedTardiness,
+					2 * aggregate.runs);
+		}
+		aggregate.weightedTardiness[aggregate.runs++] = solution.weightedTardiness;
+
+		if (aggregate.bestKnown < 0) {
+			return;
+		}
+		if (solution.weightedTardiness < aggregate.bestKnown && !aggregate.beatsBestKnown) {
+			aggregate.beatsBestKnown = true;
+			System.err.println("Warning: " + algorithm + " found " + solution.weightedTardiness
+					+ " on " + instanceName + ", below the best known " + aggregate.bestKnown
+					+ " (is the best known file for these instances?)");
+		}
+		TraceBuffer traces = solution.qualityTraces;
+		for (int target = 0; target < qualityTargets.length; target++) {
+			double targetQuality = aggregate.bestKnown * (1.0 + qualityTargets[target] / 100.0);
+			if (solution.weightedTardiness > targetQuality) {
+				continue;
+			}
+			/* The trace starts at the first improvement, not at the initial solution */
+			long hitTime = 0;
+			if (traces != null) {
+				for (int i = 0; i < traces.size(); i++) {
+					if (traces.getQuality(i) <= targetQuality) {
+						hitTime = traces.getTime(i);
+						break;
+					}
+				}
+			}
+			long[] times = aggregate.hitTimes[target];
+			if (aggregate.hits[target] == times.length) {
+				aggregate.hitTimes[target] = times = Arrays.copyOf(times, 2 * times.length);
+			}
+			times[aggregate.hits[target]++] = hitTime;
+		}
+	}
+
+	/**
+	 * Returns the statistics per algorithm and instance, as CSV lines (with a
+	 * header line)
+	 */
+	public synchronized List<String> getSummaryLines() {
+		List<String> lines = new ArrayList<String>();
+		StringBuilder header = new StringBuilder("algorithm,instance,runs,best_known,min");
+		for (double quantile : QUANTILES) {
+			header.append(",q").append(Math.round(quantile * 100));
+		}
+		header.append(",max,mean,mean_rpd,median_rpd");
+		for (double target : qualityTargets) {
+			header.append(",success_").append(formatTarget(target));
+		}
+		lines.add(header.toString());
+
+		for (Aggregate aggregate : aggregates.values()) {
+			int[] sorted = Arrays.copyOf(aggregate.weightedTardiness, aggregate.runs);
+			Arrays.sort(sorted);
+			double mean = 0;
+			for (int weightedTardiness : sorted) {
+				mean += weightedTardiness;
+			}
+			mean /= sorted.length;
+
+			StringBuilder line = new StringBuilder();
+			line.append(aggregate.algorithm).append(',').append(aggregate.instanceName)
+					.append(',').append(aggregate.runs).append(',')
+					.append(aggregate.bestKnown < 0 ? "NA" : "" + aggregate.bestKnown)
+					.append(',').append(sorted[0]);
+			for (double quantile : QUANTILES) {
+				line.append(',').append(format(quantile(sorted, quantile)));
+			}
+			line.append(',').append(sorted[sorted.length - 1]).append(',').append(format(mean));
+			if (aggregate.bestKnown < 0) {
+				line.append(",NA,NA");
+				for (int target = 0; target < qualityTargets.length; target++) {
+					line.append(",NA");
+				}
+			} else {
+				line.append(',').append(format(rpd(mean, aggregate.bestKnown))).append(',')
+						.append(format(rpd(quantile(sorted, 0.5), aggregate.bestKnown)));
+				for (int target = 0; target < qualityTargets.length; target++) {
+					line.append(',').append(format((double) aggregate.hits[target] / aggregate.runs));
+				}
+			}
+			lines.add(line.toString());
+		}
+		return lines;
+	}
+
+	/**
+	 * Returns the QRTDs per algorithm, instance and quality target, as CSV
+	 * lines (with a header line): the fraction of the runs that reached the
+	 * target at each time a run reached it
+	 */
+	public synchronized List<String> getQrtdLines() {
+		List<String> lines = new ArrayList<String>();
+		lines.add("algorithm,instance,target_rpd,time,fraction");
+		for (Aggregate aggregate : aggregates.values()) {
+			for (int target = 0; target < qualityTargets.length; target++) {
+				long[] times = Arrays.copyOf(aggregate.hitTimes[target], aggregate.hits[target]);
+				Arrays.sort(times);
+				for (int i = 0; i < times.length; i++) {
+					/* One point per distinct time, with the fraction up to it */
+					if (i + 1 < times.length && times[i + 1] == times[i]) {
+						continue;
+					}
+					lines.add(aggregate.algorithm + "," + aggregate.instanceName + ","
+							+ formatTarget(qualityTargets[target]) + "," + times[i] + ","
+							+ format((double) (i + 1) / aggregate.runs));
+				}
+			}
+		}
+		return lines;
+	}
+
+	/**
+	 * Returns the names of the instances that runs were added for, that
+	 * don't have a best known value
+	 */
+	public synchronized List<String> getInstancesWithoutBestKnown() {
+		List<String> instanceNames = new ArrayList<String>();
+		for (Aggregate aggregate : aggregates.values()) {
+			if (aggregate.bestKnown < 0 && !instanceNames.contains(aggregate.instanceName)) {
+				instanceNames.add(aggregate.instanceName);
+			}
+		}
+		return Collections.unmodifiableList(instanceNames);
+	}
+
+	/**
+	 * Returns the quantile of sorted values, interpolated linearly between
+	 * the closest ranks
+	 */
+	static double quantile(int[] sorted, double quantile) {
+		double position = quantile * (sorted.length - 1);
+		int lower = (int) Math.floor(position);
+		int upper = (int) Math.ceil(position);
+		return sorted[lower] + (position - lower) * (sorted[upper] - sorted[lower]);
+	}
+
+	private static double rpd(double weightedTardiness, int bestKnown) {
+		if (bestKnown == 0) {
+			return (weightedTardiness == 0) ? 0.0 : Double.POSITIVE_INFINITY;
+		}
+		return 100.0 * (weightedTardiness - bestKnown) / bestKnown;
+	}
+
+	/**
+	 * Formats a quality target without trailing zeros (e.g., 0.5 or 2)
+	 */
+	private static String formatTarget(double target) {
+		return new BigDecimal(Double.toString(target)).stripTrailingZeros().toPlainString();
+	}
+
+	private static String format(double value) {
+		return String.format(Locale.ROOT, "%.4f", value);
+	}
+}
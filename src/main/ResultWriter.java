@@ -0,0 +1,221 @@
+package main;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Writes result files on a background thread, so the threads running the
+ * benchmarks never wait for I/O.
+ *
+ * Files are queued with {@link #write(String, TraceBuffer)} or
+ * {@link #write(String, List)}, and handed over to the writer thread, which
+ * takes them from the queue in batches. Each file is formatted into a single
+ * reusable buffer, and written through its channel once that buffer is full
+ * (or the file is complete), instead of being flushed line by line. The files
+ * are CSV, one line per trace or result, as before.
+ *
+ * The buffer is flipped and cleared through {@link Buffer}: the covariant
+ * overrides of ByteBuffer only exist since Java 9, and calling them would
+ * fail on the Java 7 and 8 runtimes the build targets.
+ *
+ * @author Tom Jaspers
+ *
+ */
+public class ResultWriter {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * A file to write
+	 */
+	private static class Job {
+		final Path file;
+		final TraceBuffer traces;
+		final List<?> lines;
+
+		Job(Path file, TraceBuffer traces, List<?> lines) {
+			this.file = file;
+			this.traces = traces;
+			this.lines = lines;
+		}
+	}
+
+	/* Queued to stop the writer thread */
+	private static final Job END = new Job(null, null, null);
+
+	private final String resultsPath;
+	private final BlockingQueue<Job> queue = new LinkedBlockingQueue<Job>();
+	private final Thread writerThread;
+
+	/* Only used by the writer thread */
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+	private final StringBuilder text = new StringBuilder();
+
+	/* The first failure of the writer thread, reported by close() */
+	private volatile IOException failure;
+
+	/**
+	 * Creates the results folder (if needed), and starts the writer thread
+	 *
+	 * @param resultsPath
+	 *            the folder the files are written to
+	 * @throws RuntimeException
+	 *             if the folder can not be created or written to, so this
+	 *             fails before any results are computed
+	 */
+	public ResultWriter(String resultsPath) {
+		Path directory = Paths.get(resultsPath);
+		try {
+			Files.createDirectories(directory);
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to create the results folder " + directory
+					+ ": " + e.getMessage(), e);
+		}
+		if (!Files.isWritable(directory)) {
+			throw new RuntimeException("The results folder " + directory + " is not writable");
+		}
+		this.resultsPath = resultsPath;
+		this.writerThread = new Thread("ResultWriter") {
+			@Override
+			public void run() {
+				writeQueuedFiles();
+			}
+		};
+		writerThread.setDaemon(true);
+		writerThread.start();
+	}
+
+	/**
+	 * Queues a solution quality trace to be written to
+	 * [resultsPath]/[fileName].txt. The buffer must not be modified
+	 * afterwards.
+	 */
+	public void write(String fileName, TraceBuffer traces) {
+		queue.add(new Job(getFile(fileName), traces, null));
+	}
+
+	/**
+	 * Queues a list of results (one line per element, its toString()) to be
+	 * written to [resultsPath]/[fileName].txt. The list must not be modified
+	 * afterwards.
+	 */
+	public void write(String fileName, List<?> lines) {
+		queue.add(new Job(getFile(fileName), null, lines));
+	}
+
+	/**
+	 * Waits until all queued files are written, and stops the writer thread
+	 *
+	 * @throws RuntimeException
+	 *             if a file could not be written
+	 */
+	public void close() {
+		queue.add(END);
+		try {
+			writerThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while writing the results", e);
+		}
+		if (failure != null) {
+			throw new RuntimeException("Failed to write results: " + failure.getMessage(),
+					failure);
+		}
+	}
+
+	private Path getFile(String fileName) {
+		return Paths.get(resultsPath, fileName + ".txt");
+	}
+
+	private void writeQueuedFiles() {
+		List<Job> batch = new ArrayList<Job>();
+		try {
+			while (true) {
+				batch.add(queue.take());
+				queue.drainTo(batch);
+				for (Job job : batch) {
+					if (job == END) {
+						return;
+					}
+					try {
+						writeFile(job);
+					} catch (IOException e) {
+						if (failure == null) {
+							failure = e;
+						}
+					}
+				}
+				batch.clear();
+			}
+		} catch (InterruptedException e) {
+			// stop writing
+		}
+	}
+
+	private void writeFile(Job job) throws IOException {
+		try (FileChannel channel = FileChannel.open(job.file, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			((Buffer) buffer).clear();
+			text.setLength(0);
+			if (job.traces != null) {
+				for (int i = 0; i < job.traces.size(); i++) {
+					job.traces.appendLine(i, text);
+					if (text.length() >= BUFFER_SIZE / 4) {
+						encode(channel);
+					}
+				}
+			} else {
+				for (Object line : job.lines) {
+					text.append(line).append(System.lineSeparator());
+					if (text.length() >= BUFFER_SIZE / 4) {
+						encode(channel);
+					}
+				}
+			}
+			encode(channel);
+			((Buffer) buffer).flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Moves the formatted text into the buffer, writing the buffer to the
+	 * channel whenever it is full
+	 */
+	private void encode(FileChannel channel) throws IOException {
+		CharBuffer chars = CharBuffer.wrap(text);
+		encoder.reset();
+		while (true) {
+			CoderResult result = encoder.encode(chars, buffer, true);
+			if (result.isOverflow()) {
+				((Buffer) buffer).flip();
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				((Buffer) buffer).clear();
+			} else if (result.isUnderflow()) {
+				break;
+			} else {
+				result.throwException();
+			}
+		}
+		text.setLength(0);
+	}
+}
@@ -0,0 +1,279 @@
+package main;
+
+import java.util.Random;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.ParseException;
+
+import main.IISolver.Pivot;
+import main.NeighborhoodGenerator.NeighborhoodMethod;
+import main.PFSPInstance.InitializationMethod;
+import util.FastRandom;
+
+/**
+ * The configuration of a single run of an SLS algorithm on an instance: the
+ * algorithm and its parameters, the seed and the budget, as given by the
+ * options of "-run" (see {@link Flowshop}). Also used for the requests of the
+ * daemon mode ({@link SolverDaemon}).
+ *
+ * @author Tom Jaspers
+ *
+ */
+public class RunConfiguration {
+
+	String sls;
+	String instancePath;
+
+	// sa params
+	InitializationMethod init = InitializationMethod.RANDOM_PERMUTATION;
+	int temp = 150; // [100, 200]
+	double steps = 0.20; // [0.10, 0.25]
+	double coolingModifier = 1.45; // [1.00, 2.00]
+	double[] neighborhoodWeights = NeighborhoodGenerator.weightsOf(NeighborhoodMethod.INSERT);
+
+	// ig params
+	int d = 4;
+	double t = 0.4;
+	int islands = 1;
+	int migrationInterval = 50;
+
+	// ii params
+	Pivot pivot = Pivot.BEST_IMPROVEMENT;
+	NeighborhoodMethod neighborhoodMethod = NeighborhoodMethod.INSERT;
+	InitializationMethod iiInit = InitializationMethod.SLACK_HEURISTIC;
+	int parallelism = 1;
+
+	/* Random seed, if hasSeed */
+	boolean hasSeed = false;
+	long seed;
+
+	/* Budget: evaluations if > 0, else maximumRuntime (ms) if > 0, else calibrated */
+	long evaluations = 0;
+	long maximumRuntime = 0;
+	TerminationController.Clock clock = TerminationController.Clock.WALL_CLOCK;
+
+	/**
+	 * Reads the configuration of a run from the command line
+	 *
+	 * @throws ParseException
+	 *             if the algorithm or instance is missing, or an option is
+	 *             invalid
+	 */
+	public static RunConfiguration parse(CommandLine line) throws ParseException {
+		RunConfiguration configuration = new RunConfiguration();
+		try {
+			// Check for the SLS algorithm (required)
+			if (line.hasOption("sls")) {
+				configuration.sls = line.getOptionValue("sls");
+			} else {
+				throw new ParseException("sls should be set");
+			}
+			if (!configuration.sls.equals("sa") && !configuration.sls.equals("ig")
+					&& !configuration.sls.equals("ii")) {
+				throw new ParseException("invalid sls algorithm: " + configuration.sls);
+			}
+			// Check for the instance (required)
+			if (line.hasOption("instance")) {
+				configuration.instancePath = line.getOptionValue("instance");
+			} else {
+				throw new ParseException("instance should be set");
+			}
+			if (line.hasOption("sa_init")) {
+				String init = line.getOptionValue("sa_init");
+				if (init.equals("random")) {
+					configuration.init = InitializationMethod.RANDOM_PERMUTATION;
+				} else if (init.equals("slack")) {
+					configuration.init = InitializationMethod.SLACK_HEURISTIC;
+				} else {
+					throw new ParseException("invalid sa_init: " + init);
+				}
+			}
+			if (line.hasOption("sa_t")) {
+				configuration.temp = Integer.parseInt(line.getOptionValue("sa_t"));
+			}
+			if (line.hasOption("sa_steps")) {
+				configuration.steps = Double.parseDouble(line.getOptionValue("sa_steps"));
+			}
+			if (line.hasOption("sa_cooling")) {
+				configuration.coolingModifier = Double.parseDouble(line
+						.getOptionValue("sa_cooling"));
+			}
+			if (line.hasOption("sa_neighborhood")) {
+				configuration.neighborhoodWeights = parseNeighborhoodWeights(line
+						.getOptionValue("sa_neighborhood"));
+			}
+			if (line.hasOption("ig_d")) {
+				configuration.d = Integer.parseInt(line.getOptionValue("ig_d"));
+			}
+			if (line.hasOption("ig_t")) {
+				configuration.t = Double.parseDouble(line.getOptionValue("ig_t"));
+			}
+			if (line.hasOption("ig_islands")) {
+				configuration.islands = Integer.parseInt(line.getOptionValue("ig_islands"));
+			}
+			if (line.hasOption("ig_migration")) {
+				configuration.migrationInterval = Integer.parseInt(line
+						.getOptionValue("ig_migration"));
+			}
+			if (line.hasOption("ii_pivot")) {
+				String pivot = line.getOptionValue("ii_pivot");
+				if (pivot.equals("first")) {
+					configuration.pivot = Pivot.FIRST_IMPROVEMENT;
+				} else if (pivot.equals("best")) {
+					configuration.pivot = Pivot.BEST_IMPROVEMENT;
+				} else {
+					throw new ParseException("invalid ii_pivot: " + pivot);
+				}
+			}
+			if (line.hasOption("ii_neighborhood")) {
+				String neighborhood = line.getOptionValue("ii_neighborhood");
+				try {
+					configuration.neighborhoodMethod = NeighborhoodMethod.valueOf(neighborhood
+							.toUpperCase());
+				} catch (IllegalArgumentException e) {
+					throw new ParseException("invalid ii_neighborhood: " + neighborhood);
+				}
+			}
+			if (line.hasOption("ii_init")) {
+				String init = line.getOptionValue("ii_init");
+				if (init.equals("random")) {
+					configuration.iiInit = InitializationMethod.RANDOM_PERMUTATION;
+				} else if (init.equals("slack")) {
+					configuration.iiInit = InitializationMethod.SLACK_HEURISTIC;
+				} else {
+					throw new ParseException("invalid ii_init: " + init);
+				}
+			}
+			if (line.hasOption("ii_threads")) {
+				configuration.parallelism = Integer.parseInt(line.getOptionValue("ii_threads"));
+				if (configuration.parallelism < 1) {
+					throw new ParseException("ii_threads should be at least 1");
+				}
+			}
+			if (line.hasOption("seed")) {
+				configuration.hasSeed = true;
+				configuration.seed = Long.parseLong(line.getOptionValue("seed"));
+			}
+			if (line.hasOption("evaluations") && line.hasOption("time")) {
+				throw new ParseException("evaluations and time can't both be set");
+			}
+			if (line.hasOption("evaluations")) {
+				configuration.evaluations = Long.parseLong(line.getOptionValue("evaluations"));
+				if (configuration.evaluations < 1) {
+					throw new ParseException("evaluations should be at least 1");
+				}
+			} else if (line.hasOption("time")) {
+				configuration.maximumRuntime = 1000L * Long.parseLong(line
+						.getOptionValue("time"));
+			}
+			if (line.hasOption("clock")) {
+				String clock = line.getOptionValue("clock");
+				if (clock.equals("wall")) {
+					configuration.clock = TerminationController.Clock.WALL_CLOCK;
+				} else if (clock.equals("cpu")) {
+					configuration.clock = TerminationController.Clock.THREAD_CPU_TIME;
+				} else {
+					throw new ParseException("invalid clock: " + clock);
+				}
+			}
+		} catch (NumberFormatException e) {
+			throw new ParseException("invalid number: " + e.getMessage());
+		}
+		if (configuration.islands > 1 && configuration.evaluations > 0) {
+			throw new ParseException("ig_islands > 1 needs a time budget, not evaluations:"
+					+ " the islands migrate depending on thread timing");
+		}
+		return configuration;
+	}
+
+	/**
+	 * Reads the neighborhoods of SA: a neighborhood (transpose, exchange or
+	 * insert), or a comma-separated mix of neighborhoods with their weights,
+	 * e.g. "insert:3,exchange:1"
+	 */
+	static double[] parseNeighborhoodWeights(String neighborhoods) throws ParseException {
+		double[] weights = new double[NeighborhoodMethod.values().length];
+		for (String neighborhood : neighborhoods.split(",")) {
+			String[] fields = neighborhood.trim().split(":");
+			NeighborhoodMethod neighborhoodMethod;
+			try {
+				neighborhoodMethod = NeighborhoodMethod.valueOf(fields[0].toUpperCase());
+			} catch (IllegalArgumentException e) {
+				throw new ParseException("invalid sa_neighborhood: " + fields[0]);
+			}
+			double weight = (fields.length > 1) ? Double.parseDouble(fields[1]) : 1.0;
+			if (fields.length > 2 || weight < 0) {
+				throw new ParseException("invalid sa_neighborhood weight: " + neighborhood);
+			}
+			weights[neighborhoodMethod.ordinal()] += weight;
+		}
+		for (double weight : weights) {
+			if (weight > 0) {
+				return weights;
+			}
+		}
+		throw new ParseException("sa_neighborhood needs a positive weight");
+	}
+
+	/**
+	 * Returns true if the maximum run time has to be calculated from a VND
+	 * run on the instance (see {@link SLSSolver#calculateMaximumRuntime(long)}).
+	 * An iterative improvement without a budget runs until its local optimum.
+	 */
+	public boolean needsCalibration() {
+		return evaluations == 0 && maximumRuntime == 0 && !sls.equals("ii");
+	}
+
+	/**
+	 * Returns a new termination controller for the budget. If the run time
+	 * has to be calibrated, this is done with the solver (set to the
+	 * instance).
+	 */
+	public TerminationController createTermination(SLSSolver solver) {
+		if (evaluations > 0) {
+			// An evaluation budget needs no calibration
+			return new TerminationController(evaluations, TerminationController.Clock.EVALUATIONS);
+		}
+		long runtime = maximumRuntime;
+		if (runtime == 0 && sls.equals("ii")) {
+			runtime = Long.MAX_VALUE / 1000000L;
+		} else if (runtime == 0) {
+			runtime = solver.calculateMaximumRuntime(100L);
+		}
+		return new TerminationController(runtime, clock);
+	}
+
+	/**
+	 * Returns a new random generator, seeded with the seed if there is one
+	 */
+	public Random createRandom() {
+		return hasSeed ? new FastRandom(seed) : new FastRandom();
+	}
+
+	/**
+	 * Runs the algorithm with the solver (set to the instance)
+	 */
+	public Solution run(SLSSolver solver, TerminationController termination, Random rnd) {
+		if (sls.equals("sa")) {
+			return solver.simulatedAnnealing(init, temp, steps, coolingModifier,
+					neighborhoodWeights, termination, rnd);
+		} else if (sls.equals("ig")) {
+			if (islands > 1) {
+				return solver.iteratedGreedy(d, t, termination, islands, migrationInterval, rnd);
+			}
+			return solver.iteratedGreedy(d, t, termination, rnd);
+		} else if (sls.equals("ii")) {
+			return solver.iterativeImprovement(pivot, neighborhoodMethod, iiInit, parallelism,
+					termination, rnd);
+		}
+		throw new RuntimeException("Undefined SLS algorithm: " + sls);
+	}
+
+	public String getSls() {
+		return sls;
+	}
+
+	public String getInstancePath() {
+		return instancePath;
+	}
+}
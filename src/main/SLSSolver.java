@@ -1,11 +1,17 @@
 package main;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import util.ExpLookUpTable;
+import util.FastRandom;
+import util.Permutation;
 import main.IISolver.NeighborhoodMethodOrder;
 import main.IISolver.Pivot;
 import main.NeighborhoodGenerator.NeighborhoodMethod;
@@ -15,6 +21,7 @@ public class SLSSolver {
 
 	PFSPInstance instance;
 	IISolver iiSolver;
+	CalibrationCache calibrationCache;
 
 	public SLSSolver() {
 		this.iiSolver = new IISolver();
@@ -32,49 +39,111 @@ public class SLSSolver {
 	/**
 	 * Calculates the maximum run time as a multiple of 1 run of the first
 	 * improvement VND with the transpose-exchange-insert neighborhood, using
-	 * the slack heuristic for initialization
+	 * the slack heuristic for initialization. If a calibration cache is set,
+	 * the VND run time is taken from it (see {@link CalibrationCache}).
 	 * 
 	 * @param multiplier
-	 * @return
+	 * @return the maximum run time in milliseconds
 	 */
 	public long calculateMaximumRuntime(long multiplier) {
+		long vndTime;
+		if (calibrationCache != null) {
+			vndTime = calibrationCache.getVndTime(this);
+		} else {
+			vndTime = measureVndTime();
+		}
+
+		/*
+		 * We want to run SLS for 100 times as long as VND takes to reach local
+		 * optimum See "Implementation exercise sheet 2" (pdf)
+		 */
+		return vndTime * multiplier / 1000000L;
+	}
+
+	/**
+	 * Runs the VND of {@link #calculateMaximumRuntime(long)} once, and returns
+	 * its run time in nanoseconds
+	 */
+	long measureVndTime() {
 		iiSolver.setInstance(this.instance);
+		iiSolver.setTermination(null);
 
 		long startTime, endTime;
-		startTime = System.currentTimeMillis();
+		startTime = System.nanoTime();
 		@SuppressWarnings("unused")
 		Solution solution = iiSolver.runFirstImprovementVnd(
 				NeighborhoodMethodOrder.TRANSPOSE_EXCHANGE_INSERT,
 				InitializationMethod.SLACK_HEURISTIC);
-		endTime = System.currentTimeMillis();
+		endTime = System.nanoTime();
+		return endTime - startTime;
+	}
 
-		/*
-		 * We want to run SLS for 100 times as long as VND takes to reach local
-		 * optimum See "Implementation exercise sheet 2" (pdf)
-		 */
-		return (endTime - startTime) * multiplier;
+	/**
+	 * Sets the cache to take the VND run times from (null to always measure
+	 * them)
+	 */
+	public void setCalibrationCache(CalibrationCache calibrationCache) {
+		this.calibrationCache = calibrationCache;
 	}
 
 	/**
-	 * Runs the SA algorithm with a new Random()
+	 * Runs an iterative improvement (see {@link IISolver}) on its own, e.g.
+	 * to measure the parallel best-improvement scan.
+	 * 
+	 * @param parallelism
+	 *            the number of threads of the best-improvement scan (see
+	 *            {@link IISolver#setParallelism(int)})
+	 */
+	public Solution iterativeImprovement(Pivot pivot, NeighborhoodMethod neighborhoodMethod,
+			InitializationMethod initialMethod, int parallelism, TerminationController termination,
+			Random rnd) {
+		iiSolver.setInstance(this.instance);
+		iiSolver.setRandom(rnd);
+		iiSolver.setTermination(termination);
+		iiSolver.setParallelism(parallelism);
+		/* Start timing */
+		termination.start();
+		try {
+			Solution solution = iiSolver.runIterativeImprovement(pivot, neighborhoodMethod,
+					initialMethod);
+			solution.runtime = termination.getElapsedTime();
+			solution.evaluations = termination.getEvaluationCounter().getEvaluations();
+			return solution;
+		} finally {
+			iiSolver.setParallelism(1);
+		}
+	}
+
+	/**
+	 * Runs the SA algorithm with a new (randomly seeded) FastRandom
 	 * {@link #simulatedAnnealing(InitializationMethod, double, double, double, long, Random)}
 	 */
 	public Solution simulatedAnnealing(InitializationMethod initialMethod, double t,
 			double searchStepsMultiplier, double coolingModifier, long maximumRuntime) {
-		Random rnd = new Random();
+		Random rnd = new FastRandom();
 		return simulatedAnnealing(initialMethod, t, searchStepsMultiplier, coolingModifier,
 				maximumRuntime, rnd);
 	}
 
 	/**
-	 * Runs the IG algorithms with a new Random()
+	 * Runs the IG algorithms with a new (randomly seeded) FastRandom
 	 * {@link #iteratedGreedy(int, double, long, Random)}
 	 */
 	public Solution iteratedGreedy(int d, double t, long maximumRuntime) {
-		Random rnd = new Random();
+		Random rnd = new FastRandom();
 		return iteratedGreedy(d, t, maximumRuntime, rnd);
 	}
 
+	/**
+	 * Runs the parallel IG algorithm with a new (randomly seeded) FastRandom
+	 * {@link #iteratedGreedy(int, double, long, int, int, Random)}
+	 */
+	public Solution iteratedGreedy(int d, double t, long maximumRuntime, int islands,
+			int migrationInterval) {
+		Random rnd = new FastRandom();
+		return iteratedGreedy(d, t, maximumRuntime, islands, migrationInterval, rnd);
+	}
+
 	/**
 	 * Implementation of the Simulated Annealing (SA) algorithm for PFSP.
 	 * 
@@ -83,54 +152,87 @@ public class SLSSolver {
 	 */
 	public Solution simulatedAnnealing(InitializationMethod initialMethod, double t,
 			double searchStepsMultiplier, double coolingModifier, long maximumRuntime, Random rnd) {
-		List<SolutionQualityTrace> solutionQualityTraces = new LinkedList<>();
+		return simulatedAnnealing(initialMethod, t, searchStepsMultiplier, coolingModifier,
+				new TerminationController(maximumRuntime), rnd);
+	}
+
+	/**
+	 * Same as
+	 * {@link #simulatedAnnealing(InitializationMethod, double, double, double, long, Random)}
+	 * , running until the termination controller decides otherwise
+	 */
+	public Solution simulatedAnnealing(InitializationMethod initialMethod, double t,
+			double searchStepsMultiplier, double coolingModifier, TerminationController termination,
+			Random rnd) {
+		return simulatedAnnealing(initialMethod, t, searchStepsMultiplier, coolingModifier,
+				NeighborhoodGenerator.weightsOf(NeighborhoodMethod.INSERT), termination, rnd);
+	}
+
+	/**
+	 * Same as
+	 * {@link #simulatedAnnealing(InitializationMethod, double, double, double, TerminationController, Random)}
+	 * , with the random moves drawn from a weighted mix of the neighborhoods
+	 * (see {@link NeighborhoodGenerator#NeighborhoodGenerator(Permutation, double[], Random)})
+	 * instead of only the insert neighborhood
+	 */
+	public Solution simulatedAnnealing(InitializationMethod initialMethod, double t,
+			double searchStepsMultiplier, double coolingModifier, double[] neighborhoodWeights,
+			TerminationController termination, Random rnd) {
+		TraceBuffer solutionQualityTraces = new TraceBuffer();
 		int iterationCounter = 1; // for the mod check to avoid initial temp
 									// drop
 		iiSolver.setInstance(this.instance);
+		iiSolver.setRandom(rnd);
+		iiSolver.setTermination(termination);
 		/* Start timing */
-		long startTime = System.currentTimeMillis();
+		termination.start();
 		double temperature = instance.getTemperature(t);
 		double initialTemperature = temperature;
 		/* Construct an initial solution and perform local search */
 		Solution currentSolution = iiSolver.runIterativeImprovement(Pivot.FIRST_IMPROVEMENT,
 				NeighborhoodMethod.INSERT, initialMethod);
 		Solution bestSolution = currentSolution;
-		ExpLookUpTable lookUpTable = new ExpLookUpTable(temperature,
-				(int) Math.ceil(currentSolution.weightedTardiness * 0.01));
-		NeighborhoodGenerator neighborhoodGenerator = new NeighborhoodGenerator(
-				currentSolution.jobsOrder, NeighborhoodMethod.INSERT);
+		/* The current solution is kept (in place) by the evaluator */
+		MoveEvaluator evaluator = new MoveEvaluator(instance);
+		evaluator.setEvaluationCounter(termination.getEvaluationCounter());
+		evaluator.load(currentSolution.jobsOrder);
+		Permutation jobsOrder = evaluator.getJobsOrder();
+		NeighborhoodGenerator neighborhoodGenerator = new NeighborhoodGenerator(jobsOrder,
+				neighborhoodWeights, rnd);
 		int searchStepsPerTemperature = (int) (neighborhoodGenerator.getNeighborhoodSize()
 				* instance.getNumberOfJobs() * searchStepsMultiplier);
 		/* SA search */
-		while ((System.currentTimeMillis() - startTime) < maximumRuntime) {
-			/* Get a uniformly random neighboring solution */
-			Solution proposedSolution = new Solution();
-			proposedSolution.jobsOrder = neighborhoodGenerator.getUniformlyRandom();
-			proposedSolution.completionTimes = instance.reCalculateCompletionTimes(
-					proposedSolution.jobsOrder, currentSolution.completionTimes,
-					neighborhoodGenerator.getLastIndexChanged());
-			proposedSolution.weightedTardiness = instance
-					.calculateWeightedTardiness(proposedSolution.completionTimes);
-
-			/* We'd like to keep track of the best solution as well */
-			if (proposedSolution.weightedTardiness < bestSolution.weightedTardiness) {
-				bestSolution.jobsOrder = new ArrayList<Integer>(proposedSolution.jobsOrder);
-				bestSolution.completionTimes = proposedSolution.completionTimes;
-				bestSolution.weightedTardiness = proposedSolution.weightedTardiness;
-
-				solutionQualityTraces.add(new SolutionQualityTrace(bestSolution.weightedTardiness,
-						iterationCounter, System.currentTimeMillis() - startTime));
-			}
+		while (!termination.shouldTerminate()) {
+			/*
+			 * Sample the acceptance criterion up front, so it can serve as
+			 * cutoff for evaluating the neighboring solution
+			 */
+			int cutoff = getAcceptanceCutoff(evaluator.getWeightedTardiness(), temperature,
+					rnd.nextDouble());
+
+			/* Apply a uniformly random move to get a neighboring solution */
+			neighborhoodGenerator.nextRandomMove();
+			neighborhoodGenerator.applyMove(jobsOrder);
+			int proposedWeightedTardiness = evaluator.evaluate(
+					neighborhoodGenerator.getLastIndexChanged(), neighborhoodGenerator
+							.getLastMove().getHighestIndex(), cutoff);
 
 			/* Acceptance criterion */
-			if (proposedSolution.weightedTardiness < currentSolution.weightedTardiness) {
-				currentSolution = proposedSolution;
-				neighborhoodGenerator.setInitialNeighborhood(currentSolution.jobsOrder);
-
-			} else if (rnd.nextDouble() <= lookUpTable.getExp(proposedSolution.weightedTardiness
-					- currentSolution.weightedTardiness)) {
-				currentSolution = proposedSolution;
-				neighborhoodGenerator.setInitialNeighborhood(currentSolution.jobsOrder);
+			if (proposedWeightedTardiness != MoveEvaluator.WORSE_THAN_CUTOFF) {
+				evaluator.commit();
+
+				/*
+				 * We'd like to keep track of the best solution as well (which
+				 * can only improve when the proposed solution got accepted)
+				 */
+				if (proposedWeightedTardiness < bestSolution.weightedTardiness) {
+					evaluator.store(bestSolution);
+
+					solutionQualityTraces.add(bestSolution.weightedTardiness, iterationCounter,
+							termination.getElapsedTime());
+				}
+			} else {
+				neighborhoodGenerator.undoMove(jobsOrder);
 			}
 
 			/* Update temperature according to annealing schedule */
@@ -138,11 +240,6 @@ public class SLSSolver {
 				/* Adjust the temperature according to our cooling schedule */
 				temperature = temperature
 						/ (1 + (temperature / initialTemperature * coolingModifier));
-				/*
-				 * Update the look-up table for the new temperature (also clears
-				 * it)
-				 */
-				lookUpTable.setTemperature(temperature);
 			}
 
 			/*
@@ -151,13 +248,30 @@ public class SLSSolver {
 			 */
 			iterationCounter++;
 		}
-		bestSolution.runtime = System.currentTimeMillis() - startTime;
+		bestSolution.runtime = termination.getElapsedTime();
 		bestSolution.iterations = iterationCounter - 1; // it was initialized at
 														// 1
+		bestSolution.evaluations = termination.getEvaluationCounter().getEvaluations();
 		bestSolution.qualityTraces = solutionQualityTraces;
 		return bestSolution;
 	}
 
+	/**
+	 * Returns the (exclusive) upper bound on the weighted tardiness of a
+	 * proposed solution to be accepted by the SA acceptance criterion, for a
+	 * uniformly sampled random value. A proposed solution is accepted if
+	 * random <= exp(-delta / temperature), which is the same as
+	 * delta <= -temperature * ln(random).
+	 */
+	private int getAcceptanceCutoff(int currentWeightedTardiness, double temperature,
+			double random) {
+		double maximumDelta = -temperature * Math.log(random);
+		if (maximumDelta >= (double) Integer.MAX_VALUE - currentWeightedTardiness - 1) {
+			return Integer.MAX_VALUE;
+		}
+		return currentWeightedTardiness + (int) maximumDelta + 1;
+	}
+
 	/**
 	 * Implementation of the Iterated Greedy (IG) algorithm for PFSP
 	 * 
@@ -171,43 +285,166 @@ public class SLSSolver {
 	 * 
 	 */
 	public Solution iteratedGreedy(int d, double t, long maximumRuntime, Random rnd) {
-		/* Prepare to run */
-		List<SolutionQualityTrace> solutionQualityTraces = new LinkedList<>();
-		int iterationCounter = 0;
+		return iteratedGreedy(d, t, new TerminationController(maximumRuntime), rnd);
+	}
+
+	/**
+	 * Same as {@link #iteratedGreedy(int, double, long, Random)}, running
+	 * until the termination controller decides otherwise
+	 */
+	public Solution iteratedGreedy(int d, double t, TerminationController termination, Random rnd) {
 		iiSolver.setInstance(this.instance);
+		iiSolver.setTermination(termination);
 		/* Start timing */
-		long startTime = System.currentTimeMillis();
-		double temperature = instance.getTemperature(t);
+		termination.start();
 
 		/* Construct an initial solution and perform local search */
-		Solution currentSolution = iiSolver.runIterativeImprovement(Pivot.FIRST_IMPROVEMENT,
+		Solution initialSolution = iiSolver.runIterativeImprovement(Pivot.FIRST_IMPROVEMENT,
+				NeighborhoodMethod.INSERT, InitializationMethod.SLACK_HEURISTIC);
+		return iteratedGreedy(d, t, initialSolution, termination, rnd, null, 0);
+	}
+
+	/**
+	 * Island model version of the Iterated Greedy (IG) algorithm: runs an
+	 * independent IG (an island) on each of the given number of threads, all
+	 * starting from the same initial solution and sharing the same wall-clock
+	 * budget as the sequential version.
+	 * 
+	 * The islands publish every improvement of their best solution to a
+	 * shared incumbent. An island that did not improve its best solution for
+	 * migrationInterval iterations restarts from the shared best solution, if
+	 * that is better than its current one.
+	 * 
+	 * The quality trace is the one of the shared best solution (the iteration
+	 * being the one of the island that found it), and the iterations are
+	 * summed over the islands.
+	 */
+	public Solution iteratedGreedy(int d, double t, long maximumRuntime, int islands,
+			int migrationInterval, Random rnd) {
+		return iteratedGreedy(d, t, new TerminationController(maximumRuntime), islands,
+				migrationInterval, rnd);
+	}
+
+	/**
+	 * Same as {@link #iteratedGreedy(int, double, long, int, int, Random)},
+	 * where every island runs until its own controller (created from the given
+	 * one with {@link TerminationController#createForThread()}) decides
+	 * otherwise.
+	 * 
+	 * An evaluation budget is not supported: the islands would each use the
+	 * whole budget, and as their migration depends on the timing of the
+	 * threads, a run would not be reproducible anyway.
+	 */
+	public Solution iteratedGreedy(final int d, final double t,
+			TerminationController termination, int islands, final int migrationInterval,
+			Random rnd) {
+		if (islands <= 1) {
+			return iteratedGreedy(d, t, termination, rnd);
+		}
+		if (termination.getClock() == TerminationController.Clock.EVALUATIONS) {
+			throw new IllegalArgumentException(
+					"The parallel IG needs a time budget, not an evaluation budget");
+		}
+		iiSolver.setInstance(this.instance);
+		iiSolver.setTermination(termination);
+		/* Start timing */
+		termination.start();
+
+		/* The islands all start from the same initial solution */
+		Solution initialSolution = iiSolver.runIterativeImprovement(Pivot.FIRST_IMPROVEMENT,
 				NeighborhoodMethod.INSERT, InitializationMethod.SLACK_HEURISTIC);
+		final SharedIncumbent incumbent = new SharedIncumbent(initialSolution);
+
+		ExecutorService executor = Executors.newFixedThreadPool(islands);
+		int iterations = 0;
+		long evaluations = termination.getEvaluationCounter().getEvaluations();
+		try {
+			List<Future<Solution>> islandSolutions = new ArrayList<Future<Solution>>(islands);
+			for (int i = 0; i < islands; i++) {
+				/* Each island has its own solver (buffers) and random generator */
+				final SLSSolver island = new SLSSolver(instance);
+				final Random islandRnd = new FastRandom(rnd.nextLong());
+				final TerminationController islandTermination = termination.createForThread();
+				islandSolutions.add(executor.submit(new Callable<Solution>() {
+					@Override
+					public Solution call() {
+						islandTermination.start();
+						island.iiSolver.setInstance(instance);
+						return island.iteratedGreedy(d, t, incumbent.get(), islandTermination,
+								islandRnd, incumbent, migrationInterval);
+					}
+				}));
+			}
+			for (Future<Solution> islandSolution : islandSolutions) {
+				iterations += islandSolution.get().iterations;
+				evaluations += islandSolution.get().evaluations;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for the IG islands", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("IG island failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Solution bestSolution = incumbent.get();
+		Solution solution = new Solution();
+		solution.jobsOrder = bestSolution.jobsOrder;
+		solution.completionTimes = bestSolution.completionTimes;
+		solution.weightedTardiness = bestSolution.weightedTardiness;
+		solution.runtime = termination.getElapsedTime();
+		solution.iterations = iterations;
+		solution.evaluations = evaluations;
+		solution.qualityTraces = incumbent.getQualityTraces();
+		return solution;
+	}
+
+	/**
+	 * The IG search itself, starting from an initial solution that was
+	 * already locally optimized. If incumbent is not null, the search runs as
+	 * an island of the parallel IG.
+	 * 
+	 * The solutions accepted by the search are never modified, so they can be
+	 * shared with other islands.
+	 */
+	private Solution iteratedGreedy(int d, double t, Solution initialSolution,
+			TerminationController termination, Random rnd, SharedIncumbent incumbent,
+			int migrationInterval) {
+		/* Prepare to run */
+		TraceBuffer solutionQualityTraces = new TraceBuffer();
+		int iterationCounter = 0;
+		int iterationsWithoutImprovement = 0;
+		double temperature = instance.getTemperature(t);
+
+		Solution currentSolution = initialSolution;
 		Solution bestSolution = currentSolution;
 		/* Construct the lookup table for the Exp */
-		ExpLookUpTable lookUpTable = new ExpLookUpTable(temperature,
-				(int) Math.ceil(currentSolution.weightedTardiness * 0.01));
+		ExpLookUpTable lookUpTable = new ExpLookUpTable(temperature);
+		/* Evaluator used to destruct & reconstruct in place */
+		MoveEvaluator evaluator = new MoveEvaluator(instance);
+		evaluator.setEvaluationCounter(termination.getEvaluationCounter());
+		iiSolver.setTermination(termination);
 		/* Start iterated greedy */
-		while ((System.currentTimeMillis() - startTime) < maximumRuntime) {
+		while (!termination.shouldTerminate()) {
 			/* Destruct & Reconstruct to create s' */
-			Solution reconstructedSolution = new Solution();
-			reconstructedSolution.jobsOrder = new ArrayList<Integer>(currentSolution.jobsOrder);
+			Permutation jobsOrder = new Permutation(currentSolution.jobsOrder);
 			/* Destruction: randomly remove d jobs */
 			int[] removedJobs = new int[d];
 			for (int i = 0; i < d; i++) {
-				int randomIndex = rnd.nextInt(reconstructedSolution.jobsOrder.size());
-				removedJobs[i] = reconstructedSolution.jobsOrder.remove(randomIndex);
+				int randomIndex = rnd.nextInt(jobsOrder.size());
+				removedJobs[i] = jobsOrder.remove(randomIndex);
 			}
 			/* After removing jobs, reset and recalculate the completion times */
-			reconstructedSolution.completionTimes = instance
-					.calculateCompletionTimes(reconstructedSolution.jobsOrder);
-			reconstructedSolution.weightedTardiness = instance
-					.calculateWeightedTardiness(reconstructedSolution.completionTimes);
+			evaluator.load(jobsOrder);
 
 			/* Construction: optimally insert the removed jobs one by one */
 			for (int i = 0; i < d; i++) {
 				int newJob = removedJobs[i];
-				reconstructedSolution = insertJobOptimally(reconstructedSolution, newJob);
+				insertJobOptimally(evaluator, newJob);
 			}
+			Solution reconstructedSolution = new Solution();
+			evaluator.store(reconstructedSolution);
 
 			/* Local search s' to get s'' */
 			Solution searchedReconstructedSolution = iiSolver.runIterativeFirstImprovement(
@@ -219,43 +456,49 @@ public class SLSSolver {
 				/* Check if new best solution */
 				if (currentSolution.weightedTardiness < bestSolution.weightedTardiness) {
 					bestSolution = currentSolution;
-					solutionQualityTraces.add(new SolutionQualityTrace(
-							bestSolution.weightedTardiness, iterationCounter, System
-									.currentTimeMillis() - startTime));
+					iterationsWithoutImprovement = -1;
+					long time = termination.getElapsedTime();
+					solutionQualityTraces.add(bestSolution.weightedTardiness, iterationCounter,
+							time);
+					if (incumbent != null) {
+						incumbent.offer(bestSolution, iterationCounter, time);
+					}
 				}
 			} else if (rnd.nextDouble() <= lookUpTable
 					.getExp(searchedReconstructedSolution.weightedTardiness
 							- currentSolution.weightedTardiness)) {
 				currentSolution = searchedReconstructedSolution;
 			}
+			/* Migration: restart from the shared best when stagnating */
+			if (incumbent != null && ++iterationsWithoutImprovement >= migrationInterval) {
+				Solution sharedBestSolution = incumbent.get();
+				if (sharedBestSolution.weightedTardiness < currentSolution.weightedTardiness) {
+					currentSolution = sharedBestSolution;
+				}
+				iterationsWithoutImprovement = 0;
+			}
 			/* Increment the counter (used for keeping solution quality trace) */
 			iterationCounter++;
 		}
-		bestSolution.runtime = System.currentTimeMillis() - startTime;
-		bestSolution.iterations = iterationCounter;
-		bestSolution.qualityTraces = solutionQualityTraces;
-		return bestSolution;
+		/* Report in a new container, as bestSolution may be shared */
+		Solution solution = new Solution();
+		solution.jobsOrder = bestSolution.jobsOrder;
+		solution.completionTimes = bestSolution.completionTimes;
+		solution.weightedTardiness = bestSolution.weightedTardiness;
+		solution.runtime = termination.getElapsedTime();
+		solution.iterations = iterationCounter;
+		solution.evaluations = termination.getEvaluationCounter().getEvaluations();
+		solution.qualityTraces = solutionQualityTraces;
+		return solution;
 	}
 
-	private Solution insertJobOptimally(Solution initialSolution, int newJob) {
-		Solution bestSolution = new Solution();
-		bestSolution.weightedTardiness = Integer.MAX_VALUE;
-
-		List<Integer> simulatedJobsOrder = new ArrayList<Integer>(initialSolution.jobsOrder);
-		for (int i = 0; i <= initialSolution.jobsOrder.size(); i++) {
-			simulatedJobsOrder.add(i, newJob);
-			int[][] simulatedCompletionTimes = instance.reCalculateCompletionTimes(
-					simulatedJobsOrder, initialSolution.completionTimes, i);
-			int simulatedWeightedTardiness = instance
-					.calculateWeightedTardiness(simulatedCompletionTimes);
-			if (simulatedWeightedTardiness < bestSolution.weightedTardiness) {
-				bestSolution.jobsOrder = new ArrayList<Integer>(simulatedJobsOrder);
-				bestSolution.completionTimes = simulatedCompletionTimes;
-				bestSolution.weightedTardiness = simulatedWeightedTardiness;
-			}
-			simulatedJobsOrder.remove(i);
-		}
-		return bestSolution;
+	/**
+	 * Inserts a job in the (partial) jobs order held by the evaluator, at the
+	 * position that results in the lowest weighted tardiness
+	 */
+	private void insertJobOptimally(MoveEvaluator evaluator, int newJob) {
+		int bestPosition = evaluator.findBestInsertion(newJob);
+		evaluator.insert(newJob, bestPosition);
 	}
 
 }
@@ -0,0 +1,84 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Best solution shared between the islands of the parallel Iterated Greedy
+ * (see {@link SLSSolver#iteratedGreedy(int, double, long, int, int, java.util.Random)}).
+ *
+ * Islands publish their improvements with {@link #offer(Solution, int, long)},
+ * which replaces the shared solution with a compare-and-set loop (no locking),
+ * and only if it is strictly better. The published solutions are never
+ * modified afterwards, so islands can restart from them directly.
+ *
+ * @author Tom Jaspers
+ *
+ */
+class SharedIncumbent {
+
+	private final AtomicReference<Solution> best;
+
+	/* Every successful offer, in no particular order */
+	private final ConcurrentLinkedQueue<SolutionQualityTrace> qualityTraces = new ConcurrentLinkedQueue<SolutionQualityTrace>();
+
+	SharedIncumbent(Solution initialSolution) {
+		this.best = new AtomicReference<Solution>(initialSolution);
+	}
+
+	/**
+	 * Returns the best solution published so far
+	 */
+	Solution get() {
+		return best.get();
+	}
+
+	/**
+	 * Publishes a solution if it is better than the shared one
+	 *
+	 * @return true if the solution became the shared best
+	 */
+	boolean offer(Solution solution, int iteration, long time) {
+		Solution current = best.get();
+		while (solution.weightedTardiness < current.weightedTardiness) {
+			if (best.compareAndSet(current, solution)) {
+				qualityTraces.add(new SolutionQualityTrace(solution.weightedTardiness, iteration,
+						time));
+				return true;
+			}
+			current = best.get();
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the solution quality trace of the shared best solution, sorted
+	 * by time. Offers that raced with a better one are left out, so the
+	 * quality strictly improves over the trace.
+	 */
+	TraceBuffer getQualityTraces() {
+		List<SolutionQualityTrace> sorted = new ArrayList<SolutionQualityTrace>(qualityTraces);
+		Collections.sort(sorted, new Comparator<SolutionQualityTrace>() {
+			@Override
+			public int compare(SolutionQualityTrace a, SolutionQualityTrace b) {
+				if (a.time != b.time) {
+					return Long.compare(a.time, b.time);
+				}
+				return Integer.compare(b.quality, a.quality);
+			}
+		});
+
+		TraceBuffer improving = new TraceBuffer(sorted.size());
+		for (SolutionQualityTrace trace : sorted) {
+			if (improving.isEmpty()
+					|| trace.quality < improving.getQuality(improving.size() - 1)) {
+				improving.add(trace.quality, trace.iteration, trace.time);
+			}
+		}
+		return improving;
+	}
+}
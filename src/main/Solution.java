@@ -1,6 +1,6 @@
 package main;
 
-import java.util.List;
+import util.Permutation;
 
 /**
  * Solution class serving as a container to hold the jobsOrder, the
@@ -10,13 +10,14 @@ import java.util.List;
  * 
  */
 public class Solution {
-	public List<Integer> jobsOrder;
-	public int[][] completionTimes;
+	public Permutation jobsOrder;
+	public int[] completionTimes;
 	public int weightedTardiness;
 	
 	public int iterations;
+	public long evaluations;
 	public long runtime;
-	public List<SolutionQualityTrace> qualityTraces;
+	public TraceBuffer qualityTraces;
 
 	public Solution() {
 	}
@@ -0,0 +1,216 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+/**
+ * Long-lived solver that answers run requests on a local (loopback) TCP port,
+ * so that a tuner like irace doesn't start a new JVM for every run: the JIT
+ * stays warm, and the instances stay loaded.
+ *
+ * The protocol is line based. A request is one line with the options of
+ * "-run" (see {@link RunConfiguration}), e.g.
+ * "-sls sa -instance instances/50x20_1 -seed 1 -time 5 -sa_t 150", optionally
+ * with "-cwd [dir]" to resolve a relative instance path against. The answer is
+ * one line with the weighted tardiness of the best solution, or a line
+ * starting with "error " if the request failed. "quit" closes the connection,
+ * "shutdown" stops the daemon. The tokens of a request are separated by
+ * whitespace, so paths can't contain any.
+ *
+ * Every connection is handled on a thread of a fixed pool; the requests of a
+ * connection are handled one after another. The JVM is warmed up on the
+ * instance of the first request, before that request is run (see
+ * {@link WarmupHarness}); requests on other connections wait for it.
+ *
+ * @author Tom Jaspers
+ *
+ */
+public class SolverDaemon {
+
+	private final int port;
+	private final int threads;
+	private final Options options;
+	private final CalibrationCache calibrationCache;
+
+	private final InstanceCache instances = new InstanceCache();
+
+	/* Maximum run time of the warm-up (ms), and whether it was done */
+	private long warmupTime = 60000;
+	private boolean warmedUp;
+
+	/* The solver of the current (connection) thread */
+	private final ThreadLocal<SLSSolver> solvers = new ThreadLocal<SLSSolver>() {
+		@Override
+		protected SLSSolver initialValue() {
+			SLSSolver solver = new SLSSolver();
+			solver.setCalibrationCache(calibrationCache);
+			return solver;
+		}
+	};
+
+	private volatile ServerSocket serverSocket;
+
+	/**
+	 * @param port
+	 *            the loopback port to listen on
+	 * @param threads
+	 *            the number of connections that are handled concurrently
+	 * @param calibrationCache
+	 *            for the VND run times of requests without a budget
+	 */
+	public SolverDaemon(int port, int threads, CalibrationCache calibrationCache) {
+		this.port = port;
+		this.threads = threads;
+		this.calibrationCache = calibrationCache;
+		this.options = Flowshop.createOptions();
+		options.addOption("cwd", true, "Directory to resolve a relative instance path against");
+	}
+
+	/**
+	 * Sets the maximum run time of the warm-up in milliseconds (see
+	 * {@link WarmupHarness}), 0 to skip it
+	 */
+	public void setWarmupTime(long warmupTime) {
+		if (warmupTime < 0) {
+			throw new RuntimeException("Invalid warm-up time: " + warmupTime);
+		}
+		this.warmupTime = warmupTime;
+	}
+
+	/**
+	 * Listens for connections until a "shutdown" request
+	 */
+	public void serve() throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+			serverSocket = server;
+			System.out.println("Listening on " + server.getInetAddress().getHostAddress() + ":"
+					+ server.getLocalPort());
+			while (true) {
+				final Socket socket;
+				try {
+					socket = server.accept();
+				} catch (SocketException e) {
+					// closed by a shutdown request
+					break;
+				}
+				executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						handle(socket);
+					}
+				});
+			}
+		} finally {
+			executor.shutdown();
+			try {
+				executor.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Stops accepting connections
+	 */
+	public void shutdown() {
+		ServerSocket server = serverSocket;
+		if (server != null) {
+			try {
+				server.close();
+			} catch (IOException e) {
+				// already closed
+			}
+		}
+	}
+
+	private void handle(Socket socket) {
+		try (Socket connection = socket;
+				BufferedReader reader = new BufferedReader(new InputStreamReader(
+						connection.getInputStream(), StandardCharsets.UTF_8));
+				PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+						connection.getOutputStream(), StandardCharsets.UTF_8))) {
+			String request;
+			while ((request = reader.readLine()) != null) {
+				request = request.trim();
+				if (request.isEmpty()) {
+					continue;
+				}
+				if (request.equals("quit")) {
+					break;
+				}
+				if (request.equals("shutdown")) {
+					writer.println("ok");
+					writer.flush();
+					shutdown();
+					break;
+				}
+				writer.println(answer(request));
+				writer.flush();
+			}
+		} catch (IOException e) {
+			System.err.println("Connection failed: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Warms up the JVM on the instance of the first request
+	 */
+	private synchronized void warmUp(PFSPInstance instance) {
+		if (warmedUp) {
+			return;
+		}
+		warmedUp = true;
+		if (warmupTime > 0) {
+			WarmupHarness warmupHarness = new WarmupHarness(instance);
+			warmupHarness.setMaximumTime(warmupTime);
+			System.out.println("Warmed up the JVM: " + warmupHarness.run());
+		}
+	}
+
+	/**
+	 * Runs a request, and returns the answer line
+	 */
+	String answer(String request) {
+		try {
+			CommandLine line = new BasicParser().parse(options, request.split("\\s+"));
+			RunConfiguration configuration = RunConfiguration.parse(line);
+			Path instancePath = Paths.get(configuration.getInstancePath());
+			if (line.hasOption("cwd")) {
+				instancePath = Paths.get(line.getOptionValue("cwd")).resolve(instancePath);
+			}
+
+			PFSPInstance instance = instances.get(instancePath);
+			warmUp(instance);
+			SLSSolver solver = solvers.get();
+			solver.setInstance(instance);
+			TerminationController termination = configuration.createTermination(solver);
+			Solution solution = configuration.run(solver, termination,
+					configuration.createRandom());
+			return Integer.toString(solution.weightedTardiness);
+		} catch (ParseException e) {
+			return "error " + e.getMessage();
+		} catch (Exception e) {
+			return "error " + e;
+		}
+	}
+}
@@ -0,0 +1,223 @@
+package main;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Decides when the search loop of an SLS algorithm has to terminate: when its
+ * time budget is used up, or when a stop was requested from outside (e.g., by
+ * another thread, with {@link #requestStop()}).
+ *
+ * Reading the clock costs about as much as a cheap iteration, so
+ * {@link #shouldTerminate()} only reads it every k iterations. After every
+ * clock reading, k is adapted to the measured cost per iteration, such that
+ * the clock is read about every {@link #CHECK_PERIOD} nanoseconds (k at most
+ * doubles per reading, so a sudden rise in iteration cost doesn't make it
+ * overshoot the budget by much).
+ *
+ * The budget is measured either in wall-clock time, in CPU time of the
+ * thread running the search, or in the number of objective evaluations (see
+ * {@link EvaluationCounter}). The latter is independent of the machine and its
+ * load, and is checked on every iteration, so a seeded run is reproducible.
+ * The controller must be used by a single thread; use
+ * {@link #createForThread()} to get a controller with the same budget for
+ * another thread.
+ *
+ * @author Tom Jaspers
+ *
+ */
+public class TerminationController {
+
+	/**
+	 * The clock against which the budget is measured
+	 */
+	public enum Clock {
+		WALL_CLOCK, THREAD_CPU_TIME, EVALUATIONS
+	};
+
+	/* Targeted time between two clock readings */
+	static final long CHECK_PERIOD = 1000000L; // 1 ms
+	private static final int MAXIMUM_CHECK_INTERVAL = 1 << 20;
+
+	private final Clock clock;
+	private final long maximumRuntime;
+	private final AtomicBoolean stopRequested;
+	private final ThreadMXBean threadMXBean;
+	/* Counts the evaluations of the search this controller is used by */
+	private final EvaluationCounter evaluationCounter = new EvaluationCounter();
+
+	private long startTime;
+	/* Wall-clock start, for reporting the time of evaluation budgets */
+	private long startNanoTime;
+	/* Whether the start time is shared with the controller this was created for */
+	private boolean sharedStartTime;
+	private long lastCheckTime;
+	private int checkInterval;
+	private int iterationsUntilCheck;
+
+	/**
+	 * Creates a wall-clock controller
+	 *
+	 * @param maximumRuntime
+	 *            the budget in milliseconds
+	 */
+	public TerminationController(long maximumRuntime) {
+		this(maximumRuntime, Clock.WALL_CLOCK);
+	}
+
+	/**
+	 * @param budget
+	 *            the budget in milliseconds, or in evaluations for
+	 *            {@link Clock#EVALUATIONS}
+	 */
+	public TerminationController(long budget, Clock clock) {
+		this((clock == Clock.EVALUATIONS) ? budget : budget * 1000000L, clock,
+				new AtomicBoolean());
+	}
+
+	/**
+	 * @param maximumRuntime
+	 *            the budget in units of the clock (nanoseconds or evaluations)
+	 */
+	private TerminationController(long maximumRuntime, Clock clock,
+			AtomicBoolean stopRequested) {
+		this.clock = clock;
+		this.maximumRuntime = maximumRuntime;
+		this.stopRequested = stopRequested;
+		if (clock == Clock.THREAD_CPU_TIME) {
+			this.threadMXBean = ManagementFactory.getThreadMXBean();
+			if (!threadMXBean.isCurrentThreadCpuTimeSupported()) {
+				throw new RuntimeException("Thread CPU time is not supported by this JVM");
+			}
+		} else {
+			this.threadMXBean = null;
+		}
+		start();
+	}
+
+	/**
+	 * Returns a new controller with the same budget and clock, for a search
+	 * running on another thread (which must call {@link #start()}). It shares
+	 * the stop flag with this controller. With the wall clock, it also shares
+	 * the start time, so both end at the same moment.
+	 */
+	public TerminationController createForThread() {
+		TerminationController controller = new TerminationController(maximumRuntime, clock,
+				stopRequested);
+		if (clock == Clock.WALL_CLOCK) {
+			controller.startTime = startTime;
+			controller.startNanoTime = startNanoTime;
+			controller.sharedStartTime = true;
+		}
+		return controller;
+	}
+
+	/**
+	 * (Re)starts measuring the budget from now, on the calling thread. With
+	 * the wall clock, a controller created with
+	 * {@link #createForThread()} keeps the start time it shares.
+	 */
+	public void start() {
+		long now = currentTime();
+		if (!sharedStartTime) {
+			startTime = now;
+			startNanoTime = System.nanoTime();
+		}
+		lastCheckTime = now;
+		checkInterval = 1;
+		iterationsUntilCheck = 1;
+	}
+
+	/**
+	 * Called once per iteration of the search loop; returns true if the
+	 * search has to terminate
+	 */
+	public boolean shouldTerminate() {
+		if (--iterationsUntilCheck > 0) {
+			return false;
+		}
+		return check();
+	}
+
+	private boolean check() {
+		if (stopRequested.get()) {
+			return true;
+		}
+		long now = currentTime();
+		long remaining = maximumRuntime - (now - startTime);
+		if (remaining <= 0) {
+			return true;
+		}
+		if (clock == Clock.EVALUATIONS) {
+			/* Counting is cheap, and checking every iteration is exact */
+			return false;
+		}
+
+		/* Adapt the interval to the cost of the last iterations */
+		long elapsedPerIteration = Math.max(1L, (now - lastCheckTime) / checkInterval);
+		long period = Math.min(CHECK_PERIOD, remaining);
+		long interval = Math.max(1L, period / elapsedPerIteration);
+		checkInterval = (int) Math.min(interval,
+				Math.min(2L * checkInterval, MAXIMUM_CHECK_INTERVAL));
+		iterationsUntilCheck = checkInterval;
+		lastCheckTime = now;
+		return false;
+	}
+
+	/**
+	 * Requests the search (and all controllers sharing the stop flag) to
+	 * terminate at the next clock reading
+	 */
+	public void requestStop() {
+		stopRequested.set(true);
+	}
+
+	public boolean isStopRequested() {
+		return stopRequested.get();
+	}
+
+	/**
+	 * Returns the time used since the start, in milliseconds (of wall-clock
+	 * time for an evaluation budget)
+	 */
+	public long getElapsedTime() {
+		if (clock == Clock.EVALUATIONS) {
+			return (System.nanoTime() - startNanoTime) / 1000000L;
+		}
+		return (currentTime() - startTime) / 1000000L;
+	}
+
+	/**
+	 * Returns the counter that the evaluators of the search should count
+	 * their evaluations with
+	 */
+	public EvaluationCounter getEvaluationCounter() {
+		return evaluationCounter;
+	}
+
+	/**
+	 * Returns the number of iterations between two clock readings, as last
+	 * adapted
+	 */
+	public int getCheckInterval() {
+		return checkInterval;
+	}
+
+	public Clock getClock() {
+		return clock;
+	}
+
+	private long currentTime() {
+		switch (clock) {
+		case WALL_CLOCK:
+			return System.nanoTime();
+		case THREAD_CPU_TIME:
+			return threadMXBean.getCurrentThreadCpuTime();
+		case EVALUATIONS:
+			return evaluationCounter.getEvaluations();
+		default:
+			throw new RuntimeException("Undefined Clock: " + clock);
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package main;
+
+import java.util.Arrays;
+
+/**
+ * Solution quality trace of a run: the (quality, iteration, time) of every
+ * improvement of the best solution, in the order they were found.
+ *
+ * The traces are stored in parallel primitive arrays that grow by doubling,
+ * so recording an improvement doesn't allocate an object (or a list node).
+ * Not thread-safe: a buffer is filled by the thread running the search.
+ *
+ * @author Tom Jaspers
+ *
+ */
+public class TraceBuffer {
+
+	private static final int DEFAULT_CAPACITY = 64;
+
+	private int[] qualities;
+	private int[] iterations;
+	private long[] times;
+	private int size;
+
+	public TraceBuffer() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public TraceBuffer(int initialCapacity) {
+		int capacity = Math.max(1, initialCapacity);
+		qualities = new int[capacity];
+		iterations = new int[capacity];
+		times = new long[capacity];
+	}
+
+	/**
+	 * Records an improvement
+	 *
+	 * @param time
+	 *            the time since the start of the run, in milliseconds
+	 */
+	public void add(int quality, int iteration, long time) {
+		if (size == qualities.length) {
+			int capacity = 2 * size;
+			qualities = Arrays.copyOf(qualities, capacity);
+			iterations = Arrays.copyOf(iterations, capacity);
+			times = Arrays.copyOf(times, capacity);
+		}
+		qualities[size] = quality;
+		iterations[size] = iteration;
+		times[size] = time;
+		size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int getQuality(int index) {
+		checkIndex(index);
+		return qualities[index];
+	}
+
+	public int getIteration(int index) {
+		checkIndex(index);
+		return iterations[index];
+	}
+
+	public long getTime(int index) {
+		checkIndex(index);
+		return times[index];
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Appends the trace at the index as a CSV line "quality,iteration,time"
+	 * (the format of {@link SolutionQualityTrace#toString()})
+	 */
+	public void appendLine(int index, StringBuilder builder) {
+		checkIndex(index);
+		builder.append(qualities[index]).append(',').append(iterations[index]).append(',')
+				.append(times[index]).append(System.lineSeparator());
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+}
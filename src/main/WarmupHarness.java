@@ -0,0 +1,209 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import main.IISolver.Pivot;
+import main.NeighborhoodGenerator.NeighborhoodMethod;
+import main.PFSPInstance.InitializationMethod;
+import util.FastRandom;
+
+/**
+ * Warms up the JVM before timed runs, until the JIT has reached a steady state
+ * (or a maximum time has passed).
+ *
+ * Every warm-up iteration does the same work on an instance: the first
+ * improvement local search in all three neighborhoods (from the same random
+ * initial solutions), and short IG and SA runs with an evaluation budget,
+ * which together exercise the evaluator, the permuters and the local
+ * searches. As the work is the same, the throughput of the iterations (in
+ * evaluations per ms) only changes while code is still being compiled. The
+ * JIT is considered steady once the throughputs of the last
+ * {@value #WINDOW} iterations vary less than {@value #STEADY_VARIATION} (as
+ * coefficient of variation), and their mean is within that of the
+ * {@value #WINDOW} iterations before.
+ *
+ * @author Tom Jaspers
+ *
+ */
+public class WarmupHarness {
+
+	/* Number of iterations the throughput has to be stable for */
+	private static final int WINDOW = 5;
+	/* Maximum relative variation of a stable throughput */
+	private static final double STEADY_VARIATION = 0.03;
+	/* Evaluation budget of the IG and SA runs of an iteration */
+	private static final long RUN_EVALUATIONS = 20000;
+	/* Every iteration uses the same random numbers, so it does the same work */
+	private static final long SEED = 0;
+
+	/**
+	 * The statistics of a warm-up
+	 */
+	public static class Result {
+		private final String instanceName;
+		private final long[] evaluations;
+		private final long[] times;
+		private final int iterations;
+		private final boolean steady;
+
+		Result(String instanceName, long[] evaluations, long[] times, int iterations,
+				boolean steady) {
+			this.instanceName = instanceName;
+			this.evaluations = evaluations;
+			this.times = times;
+			this.iterations = iterations;
+			this.steady = steady;
+		}
+
+		public int getIterations() {
+			return iterations;
+		}
+
+		/**
+		 * Returns true if the JIT reached a steady state, false if the warm-up
+		 * stopped at the maximum time
+		 */
+		public boolean isSteady() {
+			return steady;
+		}
+
+		/**
+		 * Returns the run time of the warm-up in milliseconds
+		 */
+		public long getElapsedTime() {
+			long elapsedTime = 0;
+			for (int i = 0; i < iterations; i++) {
+				elapsedTime += times[i];
+			}
+			return elapsedTime / 1000000L;
+		}
+
+		/**
+		 * Returns the throughput of an iteration, in evaluations per ms
+		 */
+		public double getThroughput(int iteration) {
+			return evaluations[iteration] * 1000000.0 / Math.max(1, times[iteration]);
+		}
+
+		/**
+		 * Returns the iterations as CSV lines (with a header line)
+		 */
+		public List<String> getLines() {
+			List<String> lines = new ArrayList<String>();
+			lines.add("instance,iteration,time_ms,evaluations,evaluations_per_ms,steady");
+			for (int i = 0; i < iterations; i++) {
+				lines.add(String.format(Locale.ROOT, "%s,%d,%.3f,%d,%.1f,%b", instanceName,
+						i + 1, times[i] / 1000000.0, evaluations[i], getThroughput(i), steady
+								&& i == iterations - 1));
+			}
+			return lines;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT, "%s after %d iterations (%d ms) on %s, %.1f"
+					+ " evaluations/ms (first iteration: %.1f)", steady ? "steady"
+					: "not steady", iterations, getElapsedTime(), instanceName,
+					getThroughput(iterations - 1), getThroughput(0));
+		}
+	}
+
+	private final PFSPInstance instance;
+	private long maximumTime = 60000;
+
+	/**
+	 * @param instance
+	 *            the instance to warm up on (a small one keeps the iterations
+	 *            short, so the steady state is detected sooner)
+	 */
+	public WarmupHarness(PFSPInstance instance) {
+		this.instance = instance;
+	}
+
+	/**
+	 * Sets the maximum run time of the warm-up in milliseconds (default: 60 s)
+	 */
+	public void setMaximumTime(long maximumTime) {
+		this.maximumTime = maximumTime;
+	}
+
+	/**
+	 * Runs warm-up iterations until the throughput is steady, or the maximum
+	 * time has passed
+	 */
+	public Result run() {
+		SLSSolver solver = new SLSSolver(instance);
+		IISolver iiSolver = new IISolver(instance);
+		long[] evaluations = new long[64];
+		long[] times = new long[64];
+		int iterations = 0;
+		boolean steady = false;
+		long deadline = System.nanoTime() + maximumTime * 1000000L;
+		while (!steady && System.nanoTime() < deadline) {
+			if (iterations == times.length) {
+				evaluations = Arrays.copyOf(evaluations, 2 * iterations);
+				times = Arrays.copyOf(times, 2 * iterations);
+			}
+			long start = System.nanoTime();
+			evaluations[iterations] = iterate(solver, iiSolver);
+			times[iterations] = System.nanoTime() - start;
+			iterations++;
+			steady = isSteady(evaluations, times, iterations);
+		}
+		return new Result(instance.getInstanceName(), evaluations, times, iterations, steady);
+	}
+
+	/**
+	 * Runs the work of one iteration, and returns the number of evaluations
+	 */
+	private long iterate(SLSSolver solver, IISolver iiSolver) {
+		FastRandom rnd = new FastRandom(SEED);
+		EvaluationCounter counter = new EvaluationCounter();
+		iiSolver.setRandom(rnd);
+		iiSolver.setEvaluationCounter(counter);
+		for (NeighborhoodMethod neighborhoodMethod : NeighborhoodMethod.values()) {
+			iiSolver.runIterativeImprovement(Pivot.FIRST_IMPROVEMENT, neighborhoodMethod,
+					InitializationMethod.RANDOM_PERMUTATION);
+		}
+		long runEvaluations = 0;
+		TerminationController termination = new TerminationController(RUN_EVALUATIONS,
+				TerminationController.Clock.EVALUATIONS);
+		solver.iteratedGreedy(4, 0.4, termination, rnd);
+		runEvaluations += termination.getEvaluationCounter().getEvaluations();
+		termination = new TerminationController(RUN_EVALUATIONS,
+				TerminationController.Clock.EVALUATIONS);
+		solver.simulatedAnnealing(InitializationMethod.SLACK_HEURISTIC, 150, 0.20, 1.45,
+				termination, rnd);
+		runEvaluations += termination.getEvaluationCounter().getEvaluations();
+		return counter.getEvaluations() + runEvaluations;
+	}
+
+	/**
+	 * Returns true if the throughput of the last iterations is stable (see
+	 * the class description)
+	 */
+	private static boolean isSteady(long[] evaluations, long[] times, int iterations) {
+		if (iterations < 2 * WINDOW) {
+			return false;
+		}
+		double mean = 0;
+		double previousMean = 0;
+		for (int i = iterations - WINDOW; i < iterations; i++) {
+			mean += (double) evaluations[i] / times[i];
+			previousMean += (double) evaluations[i - WINDOW] / times[i - WINDOW];
+		}
+		mean /= WINDOW;
+		previousMean /= WINDOW;
+		double variance = 0;
+		for (int i = iterations - WINDOW; i < iterations; i++) {
+			double deviation = (double) evaluations[i] / times[i] - mean;
+			variance += deviation * deviation;
+		}
+		double variation = Math.sqrt(variance / (WINDOW - 1)) / mean;
+		return variation < STEADY_VARIATION
+				&& Math.abs(mean - previousMean) < STEADY_VARIATION * mean;
+	}
+}
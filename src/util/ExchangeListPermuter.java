@@ -1,8 +1,6 @@
 package util;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Random;
 
 /**
  * Implementation of the {@link util.ListPermuter} interface, providing a way of
@@ -16,13 +14,23 @@ import java.util.List;
  */
 public class ExchangeListPermuter implements ListPermuter {
 
-	private List<Integer> initialNeighborhood;
+	private Permutation initialNeighborhood;
+	private final Random rnd;
 	private int i;
 	private int j;
-	private int lastIndexChanged;
+	private final Move move = new Move(Move.Type.EXCHANGE);
 
-	public ExchangeListPermuter(List<Integer> initialNeighborhood) {
+	public ExchangeListPermuter(Permutation initialNeighborhood) {
+		this(initialNeighborhood, new FastRandom());
+	}
+
+	/**
+	 * @param rnd
+	 *            source of randomness for the random moves
+	 */
+	public ExchangeListPermuter(Permutation initialNeighborhood, Random rnd) {
 		this.initialNeighborhood = initialNeighborhood;
+		this.rnd = rnd;
 		resetCounters();
 	}
 
@@ -30,7 +38,7 @@ public class ExchangeListPermuter implements ListPermuter {
 	 * @see util.ListPermuter
 	 */
 	@Override
-	public void setInitialNeighborhood(List<Integer> neighborhood) {
+	public void setInitialNeighborhood(Permutation neighborhood) {
 		this.initialNeighborhood = neighborhood;
 	}
 
@@ -46,18 +54,45 @@ public class ExchangeListPermuter implements ListPermuter {
 	 * @see util.ListPermuter
 	 */
 	@Override
-	public List<Integer> getNext() {
-		List<Integer> newList = new ArrayList<Integer>(initialNeighborhood);
-		Collections.swap(newList, i, j);
+	public Permutation getNext() {
+		Permutation newList = new Permutation(initialNeighborhood);
+		nextMove();
+		applyMove(newList);
+		return newList;
+	}
 
-		lastIndexChanged = i;
+	/**
+	 * @see util.ListPermuter
+	 */
+	@Override
+	public boolean nextMove() {
+		if (!hasNext()) {
+			return false;
+		}
+		move.set(Move.Type.EXCHANGE, i, j);
 
 		j++;
 		if (j == initialNeighborhood.size()) {
 			i++;
 			j = i + 1;
 		}
-		return newList;
+		return true;
+	}
+
+	/**
+	 * @see util.ListPermuter
+	 */
+	@Override
+	public void applyMove(Permutation permutation) {
+		move.apply(permutation);
+	}
+
+	/**
+	 * @see util.ListPermuter
+	 */
+	@Override
+	public void undoMove(Permutation permutation) {
+		move.undo(permutation);
 	}
 
 	/**
@@ -77,7 +112,15 @@ public class ExchangeListPermuter implements ListPermuter {
 	 */
 	@Override
 	public int getLastIndexChanged() {
-		return this.lastIndexChanged;
+		return move.getLowestIndex();
+	}
+
+	/**
+	 * @see util.ListPermuter
+	 */
+	@Override
+	public Move getLastMove() {
+		return move;
 	}
 
 	/**
@@ -93,9 +136,32 @@ public class ExchangeListPermuter implements ListPermuter {
 	 * @see util.ListPermuter
 	 */
 	@Override
-	public List<Integer> getUniformlyRandom() {
-		// TODO getUniformlyRandom() for ExchangeListPermuter
-		System.err.println("ExchangeListPermuter#getUniformlyRandom() not yet implemented");
-		return null;
+	public Permutation getUniformlyRandom() {
+		Permutation newList = new Permutation(initialNeighborhood);
+		nextRandomMove();
+		applyMove(newList);
+		return newList;
+	}
+
+	/**
+	 * @see util.ListPermuter
+	 */
+	@Override
+	public boolean nextRandomMove() {
+		int n = initialNeighborhood.size();
+		if (n < 2) {
+			return false;
+		}
+		/*
+		 * A uniformly random ordered pair of distinct positions (the second
+		 * one skips the first), so every unordered pair has the same chance
+		 */
+		int first = rnd.nextInt(n);
+		int second = rnd.nextInt(n - 1);
+		if (second >= first) {
+			second++;
+		}
+		move.set(Move.Type.EXCHANGE, Math.min(first, second), Math.max(first, second));
+		return true;
 	}
 }
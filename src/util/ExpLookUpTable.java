@@ -1,43 +1,131 @@
 package util;
 
-import gnu.trove.map.hash.TIntObjectHashMap;
-
+import java.util.Arrays;
 
+/**
+ * Lookup table for the acceptance probability exp(-diff / temperature) of a
+ * (non-negative) difference in weighted tardiness.
+ *
+ * The values are cached in a dense array indexed by the difference, and are
+ * calculated on their first lookup. Each entry is stamped with the generation
+ * of the temperature it was calculated for, so changing the temperature only
+ * increments the generation instead of clearing the table. Differences for
+ * which exp underflows to 0 are answered without calculating anything, and
+ * only the remaining (negative or very large) differences are calculated on
+ * every lookup. The returned values are exactly those of Math.exp.
+ *
+ * @author Tom Jaspers
+ *
+ */
 public class ExpLookUpTable {
-	
-	TIntObjectHashMap<Double> table;
-	double temperature;
-	
-	public ExpLookUpTable(double temperature){
-		this(temperature, 100);
-	}
-	
-	public ExpLookUpTable(double temperature, int initialCapacity){
-		assert(temperature != 0);
-		assert(initialCapacity > 0);
-		
-		this.table = new TIntObjectHashMap<>(initialCapacity);
-		this.temperature = temperature;
-		
-	}
-	
-	public double getExp(int diff){
-		if(table.contains(diff)){
-			return table.get(diff);
+
+	/* Default maximum number of differences that are cached */
+	private static final int DEFAULT_MAXIMUM_SIZE = 1 << 16;
+
+	/* Math.exp(-x) is 0.0 for every x above this */
+	private static final double EXP_UNDERFLOW = 746.0;
+
+	private final int maximumSize;
+
+	private double temperature;
+	/* Every difference from here on has an acceptance probability of 0 */
+	private long underflowDiff;
+
+	private double[] values;
+	private int[] generations;
+	private int generation;
+
+	/* Statistics on the lookups */
+	private long lookups;
+	private long hits;
+	private long underflows;
+
+	public ExpLookUpTable(double temperature) {
+		this(temperature, DEFAULT_MAXIMUM_SIZE);
+	}
+
+	/**
+	 * @param maximumSize
+	 *            the maximum number of differences (0, 1, ...) that are
+	 *            cached
+	 */
+	public ExpLookUpTable(double temperature, int maximumSize) {
+		assert (temperature != 0);
+		assert (maximumSize > 0);
+
+		this.maximumSize = maximumSize;
+		this.values = new double[0];
+		this.generations = new int[0];
+		setTemperature(temperature);
+	}
+
+	public double getExp(int diff) {
+		lookups++;
+		if (diff >= 0 && diff < values.length) {
+			if (generations[diff] == generation) {
+				hits++;
+				return values[diff];
+			}
+			double value = calculateValue(diff);
+			values[diff] = value;
+			generations[diff] = generation;
+			return value;
+		}
+		if (diff >= underflowDiff) {
+			underflows++;
+			return 0.0;
 		}
-		double value = calculateValue(diff);
-		table.put(diff, value);
-		return value;
-	}
-	
-	public void setTemperature(double newTemperature){
-		assert(temperature != 0);
-		
-		table.clear();
+		return calculateValue(diff);
+	}
+
+	public void setTemperature(double newTemperature) {
+		assert (newTemperature != 0);
+
 		this.temperature = newTemperature;
+		this.underflowDiff = (long) Math.ceil(EXP_UNDERFLOW * newTemperature);
+
+		/* Only the differences that can have a non-zero value are cached */
+		int size = (int) Math.min(underflowDiff, maximumSize);
+		if (size > values.length) {
+			values = Arrays.copyOf(values, size);
+			generations = Arrays.copyOf(generations, size);
+		}
+		generation++;
+	}
+
+	/**
+	 * Returns the number of calls to {@link #getExp(int)}
+	 */
+	public long getLookups() {
+		return lookups;
+	}
+
+	/**
+	 * Returns the number of lookups that were answered from the table
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of lookups that were answered with 0 because exp
+	 * underflows
+	 */
+	public long getUnderflows() {
+		return underflows;
 	}
-	
-	private double calculateValue(int diff){
-		return Math.exp(-diff/this.temperature);
+
+	/**
+	 * Returns the fraction of lookups that did not calculate exp
+	 */
+	public double getHitRate() {
+		if (lookups == 0) {
+			return 0.0;
+		}
+		return (double) (hits + underflows) / lookups;
+	}
+
+	private double calculateValue(int diff) {
+		return Math.exp(-diff / this.temperature);
 	}
 }
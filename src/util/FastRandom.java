@@ -0,0 +1,109 @@
+package util;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fast, seedable and splittable random number generator (SplitMix64), usable
+ * wherever a {@link java.util.Random} is expected.
+ *
+ * Unlike java.util.Random, the state is a plain long that is not updated
+ * atomically, so an instance must not be shared between threads. Use
+ * {@link #split()} to derive an independent generator for another thread (or
+ * another run); the derived streams are reproducible from the original seed.
+ *
+ * @author Tom Jaspers
+ *
+ */
+public class FastRandom extends Random {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	/* Makes the default seeds of generators created at the same time differ */
+	private static final AtomicLong seedUniquifier = new AtomicLong(System.nanoTime());
+
+	private long state;
+
+	/**
+	 * Creates a generator with a seed that differs from any other generator
+	 * created this way
+	 */
+	public FastRandom() {
+		this(mix(seedUniquifier.addAndGet(GOLDEN_GAMMA)) ^ System.nanoTime());
+	}
+
+	public FastRandom(long seed) {
+		super(0L);
+		this.state = seed;
+	}
+
+	/**
+	 * Returns a new generator, seeded from this one, to be used independently
+	 * (e.g., by another thread)
+	 */
+	public FastRandom split() {
+		return new FastRandom(mix(nextLong()));
+	}
+
+	@Override
+	public void setSeed(long seed) {
+		/* Also called by the constructor of Random, before state exists */
+		this.state = seed;
+	}
+
+	@Override
+	protected int next(int bits) {
+		return (int) (nextLong() >>> (64 - bits));
+	}
+
+	@Override
+	public long nextLong() {
+		state += GOLDEN_GAMMA;
+		return mix(state);
+	}
+
+	@Override
+	public int nextInt() {
+		return (int) (nextLong() >>> 32);
+	}
+
+	/**
+	 * Returns a uniformly distributed int in [0, bound), with a
+	 * multiplication instead of a division in the common case (Lemire's
+	 * method)
+	 */
+	@Override
+	public int nextInt(int bound) {
+		if (bound <= 0) {
+			throw new IllegalArgumentException("bound must be positive");
+		}
+		long product = (nextLong() >>> 32) * bound;
+		long low = product & 0xFFFFFFFFL;
+		if (low < bound) {
+			long threshold = (0x100000000L - bound) % bound;
+			while (low < threshold) {
+				product = (nextLong() >>> 32) * bound;
+				low = product & 0xFFFFFFFFL;
+			}
+		}
+		return (int) (product >>> 32);
+	}
+
+	@Override
+	public double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	@Override
+	public boolean nextBoolean() {
+		return nextLong() < 0;
+	}
+
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
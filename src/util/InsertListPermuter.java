@@ -1,7 +1,5 @@
 package util;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Random;
 
 /**
@@ -16,13 +14,23 @@ import java.util.Random;
  */
 public class InsertListPermuter implements ListPermuter {
 
-	private List<Integer> initialNeighborhood;
+	private Permutation initialNeighborhood;
+	private final Random rnd;
 	private int i;
 	private int j;
-	private int lastIndexChanged;
+	private final Move move = new Move(Move.Type.INSERT);
 
-	public InsertListPermuter(List<Integer> initialNeighborhood) {
+	public InsertListPermuter(Permutation initialNeighborhood) {
+		this(initialNeighborhood, new FastRandom());
+	}
+
+	/**
+	 * @param rnd
+	 *            source of randomness for the random moves
+	 */
+	public InsertListPermuter(Permutation initialNeighborhood, Random rnd) {
 		this.initialNeighborhood = initialNeighborhood;
+		this.rnd = rnd;
 		resetCounters();
 	}
 
@@ -30,7 +38,7 @@ public class InsertListPermuter implements ListPermuter {
 	 * @see util.ListPermuter
 	 */
 	@Override
-	public void setInitialNeighborhood(List<Integer> neighborhood) {
+	public void setInitialNeighborhood(Permutation neighborhood) {
 		this.initialNeighborhood = neighborhood;
 	}
 
@@ -50,49 +58,98 @@ public class InsertListPermuter implements ListPermuter {
 	 * @see util.ListPermuter
 	 */
 	@Override
-	public List<Integer> getNext() {
-		List<Integer> newList = null;
+	public Permutation getNext() {
+		Permutation newList = null;
+
+		if (nextMove()) {
+			newList = new Permutation(initialNeighborhood);
+			applyMove(newList);
+		}
+		return newList;
+	}
 
-		while (hasNext() && newList == null) {
+	/**
+	 * @see util.ListPermuter
+	 */
+	@Override
+	public boolean nextMove() {
+		boolean moveFound = false;
+
+		while (hasNext() && !moveFound) {
 			if ((i != j) && ((i + 1) != j)) {
-				newList = new ArrayList<Integer>(initialNeighborhood);
-				ListUtil.move(newList, i, j);
+				moveFound = true;
+				move.set(Move.Type.INSERT, i, j);
 			}
 
-			lastIndexChanged = Math.min(i, j);
-
 			j++;
 			if (j == initialNeighborhood.size()) {
 				i++;
 				j = 0;
 			}
 		}
-		return newList;
+		return moveFound;
 	}
 	
 	/**
 	 * @see util.ListPermuter
 	 */
 	@Override
-	public List<Integer> getUniformlyRandom() {
-		List<Integer> newList = new ArrayList<Integer>(initialNeighborhood);
-		
-		Random rnd = new Random();
-		
-		i = rnd.nextInt(initialNeighborhood.size());
-		j = rnd.nextInt(initialNeighborhood.size());
-		/* Let's ensure that our random neighbor is a proper insert */
-		while(!((i != j) && ((i + 1) != j))){
-			i = rnd.nextInt(initialNeighborhood.size());
-			j = rnd.nextInt(initialNeighborhood.size());
-		}
-		/* Perform the permutation */
-		ListUtil.move(newList, i, j);
-		lastIndexChanged = Math.min(i, j);
-		
+	public Permutation getUniformlyRandom() {
+		Permutation newList = new Permutation(initialNeighborhood);
+		nextRandomMove();
+		applyMove(newList);
+
 		return newList;
 	}
 
+	/**
+	 * @see util.ListPermuter
+	 */
+	@Override
+	public boolean nextRandomMove() {
+		int n = initialNeighborhood.size();
+		if (n < 2) {
+			return false;
+		}
+		/*
+		 * Picks one of the (n-1) * (n-1) proper inserts of nextMove() with a
+		 * single draw: positions i < n-1 have n-2 targets (j skips i and i+1,
+		 * as moving an item right behind itself is the same as moving the next
+		 * item in front of it), the last position has n-1 targets
+		 */
+		int index = rnd.nextInt((n - 1) * (n - 1));
+		int moveI;
+		int moveJ;
+		if (index < (n - 1) * (n - 2)) {
+			moveI = index / (n - 2);
+			moveJ = index % (n - 2);
+			if (moveJ >= moveI) {
+				moveJ += 2;
+			}
+		} else {
+			moveI = n - 1;
+			moveJ = index - (n - 1) * (n - 2);
+		}
+		move.set(Move.Type.INSERT, moveI, moveJ);
+		return true;
+	}
+
+	/**
+	 * @see util.ListPermuter
+	 */
+	@Override
+	public void applyMove(Permutation permutation) {
+		move.apply(permutation);
+	}
+
+	/**
+	 * @see util.ListPermuter
+	 */
+	@Override
+	public void undoMove(Permutation permutation) {
+		move.undo(permutation);
+	}
+
 	/**
 	 * @see util.ListPermuter
 	 */
@@ -110,7 +167,15 @@ public class InsertListPermuter implements ListPermuter {
 	 */
 	@Override
 	public int getLastIndexChanged() {
-		return this.lastIndexChanged;
+		return move.getLowestIndex();
+	}
+
+	/**
+	 * @see util.ListPermuter
+	 */
+	@Override
+	public Move getLastMove() {
+		return move;
 	}
 
 	/**
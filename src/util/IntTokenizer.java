@@ -0,0 +1,86 @@
+package util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads whitespace separated (ASCII) tokens from a buffer, byte by byte,
+ * without creating any strings. Used to parse the instance files, which
+ * consist almost entirely of integers.
+ *
+ * @author Tom Jaspers
+ *
+ */
+public class IntTokenizer {
+
+	private final ByteBuffer buffer;
+
+	public IntTokenizer(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Reads the next token as a (possibly negative) integer
+	 *
+	 * @throws RuntimeException
+	 *             if the token is not an integer, or there is no next token
+	 */
+	public int nextInt() {
+		skipWhitespace();
+		if (!buffer.hasRemaining()) {
+			throw new RuntimeException("Unexpected end of input, expected an integer");
+		}
+		boolean negative = false;
+		if (buffer.get(buffer.position()) == '-') {
+			negative = true;
+			buffer.get();
+		}
+		long value = 0;
+		int digits = 0;
+		while (buffer.hasRemaining()) {
+			int b = buffer.get(buffer.position());
+			if (b < '0' || b > '9') {
+				break;
+			}
+			value = value * 10 + (b - '0');
+			if (value > (long) Integer.MAX_VALUE + 1) {
+				throw new RuntimeException("Integer out of range at byte " + buffer.position());
+			}
+			buffer.get();
+			digits++;
+		}
+		if (digits == 0 || (buffer.hasRemaining() && !isWhitespace(buffer.get(buffer.position())))) {
+			throw new RuntimeException("Expected an integer at byte " + buffer.position());
+		}
+		value = negative ? -value : value;
+		if (value > Integer.MAX_VALUE) {
+			throw new RuntimeException("Integer out of range at byte " + buffer.position());
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Skips the next token, whatever it is
+	 *
+	 * @throws RuntimeException
+	 *             if there is no next token
+	 */
+	public void skipToken() {
+		skipWhitespace();
+		if (!buffer.hasRemaining()) {
+			throw new RuntimeException("Unexpected end of input, expected a token");
+		}
+		while (buffer.hasRemaining() && !isWhitespace(buffer.get(buffer.position()))) {
+			buffer.get();
+		}
+	}
+
+	private void skipWhitespace() {
+		while (buffer.hasRemaining() && isWhitespace(buffer.get(buffer.position()))) {
+			buffer.get();
+		}
+	}
+
+	private static boolean isWhitespace(int b) {
+		return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f';
+	}
+}
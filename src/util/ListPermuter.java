@@ -1,7 +1,5 @@
 package util;
 
-import java.util.List;
-
 /**
  * Interface for any class that wishes to implement any kind of iterable
  * permutations on a list.
@@ -21,12 +19,45 @@ public interface ListPermuter {
 	/**
 	 * Returns the next permutation of the list.
 	 */
-	public List<Integer> getNext();
+	public Permutation getNext();
 	
 	/**
 	 * Returns a uniformly randomly chosen permutation
 	 */
-	public List<Integer> getUniformlyRandom();
+	public Permutation getUniformlyRandom();
+
+	/**
+	 * Advances to the next move without materializing the resulting
+	 * permutation (i.e., the same move that {@link #getNext()} would perform).
+	 * The move can then be performed in place with
+	 * {@link #applyMove(Permutation)}. Returns false if there is no move left.
+	 */
+	public boolean nextMove();
+
+	/**
+	 * Selects a uniformly random move of the neighborhood (i.e., the same kind
+	 * of move that {@link #getUniformlyRandom()} would perform) in constant
+	 * time, without materializing the resulting permutation. Returns false if
+	 * the list has no neighbors.
+	 */
+	public boolean nextRandomMove();
+
+	/**
+	 * Returns the descriptor of the last selected move (the same instance for
+	 * every move, so it should not be kept).
+	 */
+	public Move getLastMove();
+
+	/**
+	 * Performs the last selected move in place on the given permutation.
+	 */
+	public void applyMove(Permutation permutation);
+
+	/**
+	 * Reverts the last selected move in place on the given permutation, given
+	 * that it was applied with {@link #applyMove(Permutation)}.
+	 */
+	public void undoMove(Permutation permutation);
 
 	/**
 	 * Returns the total possible number of permutations that the particular
@@ -49,5 +80,5 @@ public interface ListPermuter {
 	 * Sets the initial neighborhood list that serves as a basis from which the
 	 * permutations will be made.
 	 */
-	public void setInitialNeighborhood(List<Integer> neighborhood);
+	public void setInitialNeighborhood(Permutation neighborhood);
 }
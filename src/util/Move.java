@@ -0,0 +1,96 @@
+package util;
+
+/**
+ * Descriptor of a move in one of the neighborhoods of a permutation: its type
+ * and the 2 positions it involves. A move is applied (and undone) in place,
+ * so a neighbor never has to be materialized; a permuter keeps a single
+ * instance that it sets to every move it selects.
+ *
+ * @author Tom Jaspers
+ *
+ */
+public final class Move {
+
+	/**
+	 * The type of a move
+	 */
+	public enum Type {
+		/* Swaps the items at i and j = i+1 */
+		TRANSPOSE,
+		/* Swaps the items at i and j */
+		EXCHANGE,
+		/* Moves the item at i to position j */
+		INSERT
+	};
+
+	private Type type;
+	private int i;
+	private int j;
+
+	public Move(Type type) {
+		this.type = type;
+	}
+
+	/**
+	 * Sets this descriptor to another move
+	 */
+	public void set(Type type, int i, int j) {
+		this.type = type;
+		this.i = i;
+		this.j = j;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public int getI() {
+		return i;
+	}
+
+	public int getJ() {
+		return j;
+	}
+
+	/**
+	 * Returns the lowest of the positions changed by the move
+	 */
+	public int getLowestIndex() {
+		return Math.min(i, j);
+	}
+
+	/**
+	 * Returns the highest of the positions changed by the move
+	 */
+	public int getHighestIndex() {
+		return Math.max(i, j);
+	}
+
+	/**
+	 * Performs the move in place on the given permutation
+	 */
+	public void apply(Permutation permutation) {
+		if (type == Type.INSERT) {
+			permutation.move(i, j);
+		} else {
+			permutation.swap(i, j);
+		}
+	}
+
+	/**
+	 * Reverts the move in place on the given permutation, given that it was
+	 * applied with {@link #apply(Permutation)}
+	 */
+	public void undo(Permutation permutation) {
+		if (type == Type.INSERT) {
+			permutation.move(j, i);
+		} else {
+			permutation.swap(i, j);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return type + "(" + i + ", " + j + ")";
+	}
+}
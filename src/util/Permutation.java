@@ -0,0 +1,173 @@
+package util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Primitive representation of a permutation of job ids, backed by an int[].
+ * Replaces the boxed List<Integer> representation, so that generating and
+ * evaluating neighbors does not require boxing or copying of lists.
+ *
+ * The permutation can be shorter than its capacity, which allows it to be
+ * used for partial solutions (e.g., during the destruction/construction phase
+ * of Iterated Greedy).
+ *
+ * @author Tom Jaspers
+ *
+ */
+public class Permutation {
+
+	private int[] jobs;
+	private int size;
+
+	/**
+	 * Creates an empty permutation that can hold up to capacity items without
+	 * having to grow.
+	 */
+	public Permutation(int capacity) {
+		this.jobs = new int[capacity];
+		this.size = 0;
+	}
+
+	/**
+	 * Creates a permutation containing a copy of the given items
+	 */
+	public Permutation(int[] jobs) {
+		this.jobs = Arrays.copyOf(jobs, jobs.length);
+		this.size = jobs.length;
+	}
+
+	/**
+	 * Creates a hard copy of another permutation
+	 */
+	public Permutation(Permutation other) {
+		this.jobs = Arrays.copyOf(other.jobs, other.jobs.length);
+		this.size = other.size;
+	}
+
+	public int get(int index) {
+		return jobs[index];
+	}
+
+	public void set(int index, int job) {
+		jobs[index] = job;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Swaps the items at positions i and j
+	 */
+	public void swap(int i, int j) {
+		int t = jobs[i];
+		jobs[i] = jobs[j];
+		jobs[j] = t;
+	}
+
+	/**
+	 * Moves the ith item to the jth position, emulating an insert. This gives
+	 * the same result as removing the ith item and adding it again at index j
+	 * (see {@link ListUtil#move(java.util.List, int, int)}).
+	 */
+	public void move(int i, int j) {
+		int t = jobs[i];
+		if (i < j) {
+			System.arraycopy(jobs, i + 1, jobs, i, j - i);
+		} else if (i > j) {
+			System.arraycopy(jobs, j, jobs, j + 1, i - j);
+		}
+		jobs[j] = t;
+	}
+
+	/**
+	 * Inserts an item at the given index, shifting the following items
+	 */
+	public void insert(int index, int job) {
+		if (size == jobs.length) {
+			jobs = Arrays.copyOf(jobs, Math.max(1, size * 2));
+		}
+		System.arraycopy(jobs, index, jobs, index + 1, size - index);
+		jobs[index] = job;
+		size++;
+	}
+
+	/**
+	 * Appends an item at the end of the permutation
+	 */
+	public void add(int job) {
+		insert(size, job);
+	}
+
+	/**
+	 * Removes the item at the given index and returns it
+	 */
+	public int remove(int index) {
+		int job = jobs[index];
+		System.arraycopy(jobs, index + 1, jobs, index, size - index - 1);
+		size--;
+		return job;
+	}
+
+	/**
+	 * Overwrites the contents of this permutation with those of another
+	 */
+	public void copyFrom(Permutation other) {
+		if (jobs.length < other.size) {
+			jobs = new int[other.jobs.length];
+		}
+		System.arraycopy(other.jobs, 0, jobs, 0, other.size);
+		size = other.size;
+	}
+
+	/**
+	 * Randomly shuffles the items (Fisher-Yates)
+	 */
+	public void shuffle(Random rnd) {
+		for (int i = size - 1; i > 0; i--) {
+			swap(i, rnd.nextInt(i + 1));
+		}
+	}
+
+	/**
+	 * Returns a copy of the items as an array of exactly size() length
+	 */
+	public int[] toArray() {
+		return Arrays.copyOf(jobs, size);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof Permutation)) {
+			return false;
+		}
+		Permutation other = (Permutation) obj;
+		if (size != other.size) {
+			return false;
+		}
+		for (int i = 0; i < size; i++) {
+			if (jobs[i] != other.jobs[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = 1;
+		for (int i = 0; i < size; i++) {
+			hash = 31 * hash + jobs[i];
+		}
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray());
+	}
+}
@@ -0,0 +1,191 @@
+package util;
+
+/**
+ * Distribution functions for the statistical tests of the racing tuner: the
+ * chi-squared distribution (Friedman test) and Student's t distribution
+ * (post-hoc comparisons), computed from the regularized incomplete gamma and
+ * beta functions (as in Numerical Recipes).
+ *
+ * @author Tom Jaspers
+ *
+ */
+public final class Statistics {
+
+	private static final int MAX_ITERATIONS = 300;
+	private static final double EPSILON = 1e-14;
+	private static final double TINY = 1e-300;
+
+	private static final double[] LANCZOS = { 76.18009172947146, -86.50532032941677,
+			24.01409824083091, -1.231739572450155, 0.1208650973866179e-2, -0.5395239384953e-5 };
+
+	private Statistics() {
+	}
+
+	/**
+	 * Returns P(X > x) for a chi-squared distributed X with the given degrees
+	 * of freedom
+	 */
+	public static double chiSquaredSurvival(double x, double degreesOfFreedom) {
+		if (x <= 0) {
+			return 1.0;
+		}
+		return regularizedGammaQ(degreesOfFreedom / 2.0, x / 2.0);
+	}
+
+	/**
+	 * Returns P(T <= t) for a Student's t distributed T with the given
+	 * degrees of freedom
+	 */
+	public static double studentTCdf(double t, double degreesOfFreedom) {
+		double tail = 0.5 * regularizedBeta(degreesOfFreedom / (degreesOfFreedom + t * t),
+				degreesOfFreedom / 2.0, 0.5);
+		return (t > 0) ? 1.0 - tail : tail;
+	}
+
+	/**
+	 * Returns the t for which P(T <= t) = p, for a Student's t distributed T
+	 * with the given degrees of freedom
+	 */
+	public static double studentTQuantile(double p, double degreesOfFreedom) {
+		if (p <= 0.0 || p >= 1.0) {
+			throw new IllegalArgumentException("p should be in (0, 1): " + p);
+		}
+		if (p < 0.5) {
+			return -studentTQuantile(1.0 - p, degreesOfFreedom);
+		}
+		double lower = 0.0;
+		double upper = 1.0;
+		while (studentTCdf(upper, degreesOfFreedom) < p) {
+			lower = upper;
+			upper *= 2.0;
+		}
+		// Bisection; the CDF is monotone
+		for (int i = 0; i < 100 && upper - lower > EPSILON * upper; i++) {
+			double middle = (lower + upper) / 2.0;
+			if (studentTCdf(middle, degreesOfFreedom) < p) {
+				lower = middle;
+			} else {
+				upper = middle;
+			}
+		}
+		return (lower + upper) / 2.0;
+	}
+
+	/**
+	 * Returns the natural logarithm of the gamma function, for x > 0
+	 */
+	public static double logGamma(double x) {
+		double y = x;
+		double tmp = x + 5.5;
+		tmp -= (x + 0.5) * Math.log(tmp);
+		double series = 1.000000000190015;
+		for (double coefficient : LANCZOS) {
+			series += coefficient / ++y;
+		}
+		return -tmp + Math.log(2.5066282746310005 * series / x);
+	}
+
+	/**
+	 * Returns the regularized upper incomplete gamma function Q(a, x)
+	 */
+	static double regularizedGammaQ(double a, double x) {
+		if (x < a + 1.0) {
+			// Series of P(a, x)
+			double term = 1.0 / a;
+			double sum = term;
+			for (int n = 1; n < MAX_ITERATIONS; n++) {
+				term *= x / (a + n);
+				sum += term;
+				if (Math.abs(term) < Math.abs(sum) * EPSILON) {
+					break;
+				}
+			}
+			return 1.0 - sum * Math.exp(-x + a * Math.log(x) - logGamma(a));
+		}
+		// Continued fraction of Q(a, x) (modified Lentz)
+		double b = x + 1.0 - a;
+		double c = 1.0 / TINY;
+		double d = 1.0 / b;
+		double h = d;
+		for (int i = 1; i < MAX_ITERATIONS; i++) {
+			double an = -i * (i - a);
+			b += 2.0;
+			d = an * d + b;
+			if (Math.abs(d) < TINY) {
+				d = TINY;
+			}
+			c = b + an / c;
+			if (Math.abs(c) < TINY) {
+				c = TINY;
+			}
+			d = 1.0 / d;
+			double delta = d * c;
+			h *= delta;
+			if (Math.abs(delta - 1.0) < EPSILON) {
+				break;
+			}
+		}
+		return Math.exp(-x + a * Math.log(x) - logGamma(a)) * h;
+	}
+
+	/**
+	 * Returns the regularized incomplete beta function I_x(a, b)
+	 */
+	static double regularizedBeta(double x, double a, double b) {
+		if (x <= 0.0) {
+			return 0.0;
+		}
+		if (x >= 1.0) {
+			return 1.0;
+		}
+		double front = Math.exp(logGamma(a + b) - logGamma(a) - logGamma(b) + a * Math.log(x) + b
+				* Math.log(1.0 - x));
+		// The continued fraction converges fastest on this side
+		if (x < (a + 1.0) / (a + b + 2.0)) {
+			return front * betaContinuedFraction(x, a, b) / a;
+		}
+		return 1.0 - front * betaContinuedFraction(1.0 - x, b, a) / b;
+	}
+
+	private static double betaContinuedFraction(double x, double a, double b) {
+		double c = 1.0;
+		double d = 1.0 - (a + b) * x / (a + 1.0);
+		if (Math.abs(d) < TINY) {
+			d = TINY;
+		}
+		d = 1.0 / d;
+		double h = d;
+		for (int m = 1; m < MAX_ITERATIONS; m++) {
+			int m2 = 2 * m;
+			// Even step
+			double aa = m * (b - m) * x / ((a + m2 - 1) * (a + m2));
+			d = 1.0 + aa * d;
+			if (Math.abs(d) < TINY) {
+				d = TINY;
+			}
+			c = 1.0 + aa / c;
+			if (Math.abs(c) < TINY) {
+				c = TINY;
+			}
+			d = 1.0 / d;
+			h *= d * c;
+			// Odd step
+			aa = -(a + m) * (a + b + m) * x / ((a + m2) * (a + m2 + 1));
+			d = 1.0 + aa * d;
+			if (Math.abs(d) < TINY) {
+				d = TINY;
+			}
+			c = 1.0 + aa / c;
+			if (Math.abs(c) < TINY) {
+				c = TINY;
+			}
+			d = 1.0 / d;
+			double delta = d * c;
+			h *= delta;
+			if (Math.abs(delta - 1.0) < EPSILON) {
+				break;
+			}
+		}
+		return h;
+	}
+}
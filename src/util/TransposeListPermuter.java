@@ -1,8 +1,6 @@
 package util;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Random;
 
 /**
  * Implementation of the {@link util.ListPermuter} interface, providing a way of
@@ -17,12 +15,22 @@ import java.util.List;
  */
 public class TransposeListPermuter implements ListPermuter {
 
-	private List<Integer> initialNeighborhood;
+	private Permutation initialNeighborhood;
+	private final Random rnd;
 	private int i;
-	private int lastIndexChanged;
+	private final Move move = new Move(Move.Type.TRANSPOSE);
 
-	public TransposeListPermuter(List<Integer> initialNeighborhood) {
+	public TransposeListPermuter(Permutation initialNeighborhood) {
+		this(initialNeighborhood, new FastRandom());
+	}
+
+	/**
+	 * @param rnd
+	 *            source of randomness for the random moves
+	 */
+	public TransposeListPermuter(Permutation initialNeighborhood, Random rnd) {
 		this.initialNeighborhood = initialNeighborhood;
+		this.rnd = rnd;
 		resetCounters();
 	}
 
@@ -30,7 +38,7 @@ public class TransposeListPermuter implements ListPermuter {
 	 * @see util.ListPermuter
 	 */
 	@Override
-	public void setInitialNeighborhood(List<Integer> neighborhood) {
+	public void setInitialNeighborhood(Permutation neighborhood) {
 		this.initialNeighborhood = neighborhood;
 	}
 
@@ -46,14 +54,41 @@ public class TransposeListPermuter implements ListPermuter {
 	 * @see util.ListPermuter
 	 */
 	@Override
-	public List<Integer> getNext() {
-		List<Integer> newList = new ArrayList<Integer>(initialNeighborhood);
-		Collections.swap(newList, i, (i + 1));
+	public Permutation getNext() {
+		Permutation newList = new Permutation(initialNeighborhood);
+		nextMove();
+		applyMove(newList);
+		return newList;
+	}
 
-		lastIndexChanged = i;
+	/**
+	 * @see util.ListPermuter
+	 */
+	@Override
+	public boolean nextMove() {
+		if (!hasNext()) {
+			return false;
+		}
+		move.set(Move.Type.TRANSPOSE, i, i + 1);
 
 		i++;
-		return newList;
+		return true;
+	}
+
+	/**
+	 * @see util.ListPermuter
+	 */
+	@Override
+	public void applyMove(Permutation permutation) {
+		move.apply(permutation);
+	}
+
+	/**
+	 * @see util.ListPermuter
+	 */
+	@Override
+	public void undoMove(Permutation permutation) {
+		move.undo(permutation);
 	}
 
 	/**
@@ -73,7 +108,15 @@ public class TransposeListPermuter implements ListPermuter {
 	 */
 	@Override
 	public int getLastIndexChanged() {
-		return this.lastIndexChanged;
+		return move.getLowestIndex();
+	}
+
+	/**
+	 * @see util.ListPermuter
+	 */
+	@Override
+	public Move getLastMove() {
+		return move;
 	}
 
 	/**
@@ -88,10 +131,24 @@ public class TransposeListPermuter implements ListPermuter {
 	 * @see util.ListPermuter
 	 */
 	@Override
-	public List<Integer> getUniformlyRandom() {
-		// TODO getUniformlyRandom() for TransposeListPermuter
-		System.err.println("TransposeListPermuter#getUniformlyRandom() not yet implemented");
-		return null;
+	public Permutation getUniformlyRandom() {
+		Permutation newList = new Permutation(initialNeighborhood);
+		nextRandomMove();
+		applyMove(newList);
+		return newList;
+	}
+
+	/**
+	 * @see util.ListPermuter
+	 */
+	@Override
+	public boolean nextRandomMove() {
+		if (initialNeighborhood.size() < 2) {
+			return false;
+		}
+		int position = rnd.nextInt(initialNeighborhood.size() - 1);
+		move.set(Move.Type.TRANSPOSE, position, position + 1);
+		return true;
 	}
 
 }